@@ -0,0 +1,32 @@
+package dev.sanda.mockeri.benchmark;
+
+import dev.sanda.mockeri.benchmark.fixture.Customer;
+import dev.sanda.mockeri.generator.EntityMocker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AssignFieldValueBenchmark {
+    //one field per mock data source and field reference type
+    @Param({"name", "email", "age", "tier", "bio", "loyaltyPoints", "joined", "nicknames", "luckyNumbers", "basket", "wishlist"})
+    private String fieldName;
+
+    private EntityMocker entityMocker;
+
+    @Setup
+    public void setup(MockeriState mockeri){
+        entityMocker = mockeri.bean(EntityMocker.class);
+    }
+
+    //goes through assignFieldValue without persisting anything
+    @Benchmark
+    public Object assignFieldValue(){
+        return entityMocker.mockFieldValue(Customer.class, fieldName);
+    }
+}
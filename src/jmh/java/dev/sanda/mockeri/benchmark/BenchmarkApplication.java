@@ -0,0 +1,7 @@
+package dev.sanda.mockeri.benchmark;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication(scanBasePackages = "dev.sanda")
+public class BenchmarkApplication {
+}
@@ -0,0 +1,37 @@
+package dev.sanda.mockeri.benchmark;
+
+import dev.sanda.mockeri.benchmark.fixture.OrderLine;
+import dev.sanda.mockeri.meta.CollectionInstantiator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollectionInstantiatorBenchmark {
+    @Param({"List", "Set", "Collection"})
+    private String collectionType;
+    @Param({"String", "Long", "OrderLine"})
+    private String elementType;
+
+    private CollectionInstantiator collectionInstantiator;
+    private Class<?> collectionClass;
+    private Class<?> elementClass;
+
+    @Setup
+    public void setup(MockeriState mockeri) throws ClassNotFoundException {
+        collectionInstantiator = mockeri.bean(CollectionInstantiator.class);
+        collectionClass = Class.forName("java.util." + collectionType);
+        elementClass = elementType.equals("OrderLine") ? OrderLine.class : Class.forName("java.lang." + elementType);
+    }
+
+    @Benchmark
+    public Collection instantiateCollection(){
+        return collectionInstantiator.instantiateCollection(collectionClass, elementClass);
+    }
+}
@@ -0,0 +1,59 @@
+package dev.sanda.mockeri.benchmark;
+
+import dev.sanda.mockeri.benchmark.fixture.Customer;
+import dev.sanda.mockeri.generator.EntityMocker;
+import dev.sanda.mockeri.generator.IdRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityMockerBenchmark {
+    @Param({"Customer", "Product", "OrderLine"})
+    private String entityType;
+
+    private EntityMocker entityMocker;
+    private IdRegistry idRegistry;
+    private JdbcTemplate jdbcTemplate;
+    private Class<?> entityClass;
+
+    @Setup
+    public void setup(MockeriState mockeri) throws ClassNotFoundException {
+        entityMocker = mockeri.bean(EntityMocker.class);
+        idRegistry = mockeri.bean(IdRegistry.class);
+        jdbcTemplate = new JdbcTemplate(mockeri.bean(DataSource.class));
+        entityClass = Class.forName(Customer.class.getPackage().getName() + "." + entityType);
+    }
+
+    //every iteration starts from empty tables, so inserts and existing-row lookups don't slow down as rows pile up
+    @TearDown(Level.Iteration)
+    public void truncate(){
+        List<String> tables = jdbcTemplate.queryForList(
+                "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC'", String.class);
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        try {
+            for (String table : tables) jdbcTemplate.execute("TRUNCATE TABLE " + table);
+        } finally {
+            jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+        idRegistry.reset();
+    }
+
+    @Benchmark
+    public Object instantiateTransientEntity(){
+        return entityMocker.instantiateTransientEntity(entityClass);
+    }
+
+    @Benchmark
+    public Object instantiateEntity(){
+        return entityMocker.instantiateEntity(entityClass);
+    }
+}
@@ -0,0 +1,36 @@
+package dev.sanda.mockeri.benchmark;
+
+import dev.sanda.mockeri.benchmark.fixture.Customer;
+import dev.sanda.mockeri.meta.FieldMetaInfo;
+import dev.sanda.mockeri.meta.FieldMetaInfoFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FieldMetaInfoBenchmark {
+    @Param({"id", "name", "age", "tier", "bio", "active", "joined", "nicknames", "basket", "wishlist"})
+    private String fieldName;
+
+    private FieldMetaInfoFactory fieldMetaInfoFactory;
+    private Customer parent;
+    private Field field;
+
+    @Setup
+    public void setup(MockeriState mockeri) throws NoSuchFieldException {
+        fieldMetaInfoFactory = mockeri.bean(FieldMetaInfoFactory.class);
+        parent = new Customer();
+        field = Customer.class.getDeclaredField(fieldName);
+    }
+
+    @Benchmark
+    public FieldMetaInfo fieldMetaInfo(){
+        return fieldMetaInfoFactory.fieldMetaInfo(parent, field);
+    }
+}
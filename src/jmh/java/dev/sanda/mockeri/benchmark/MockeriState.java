@@ -0,0 +1,31 @@
+package dev.sanda.mockeri.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+@State(Scope.Benchmark)
+public class MockeriState {
+    private ConfigurableApplicationContext context;
+
+    @Setup
+    public void start(){
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run();
+    }
+
+    @TearDown
+    public void stop(){
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type){
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,31 @@
+package dev.sanda.mockeri.benchmark;
+
+import dev.sanda.mockeri.generator.TestDataGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TestDataGeneratorBenchmark {
+    private TestDataGenerator testData;
+
+    @Setup
+    public void setup(MockeriState mockeri){
+        testData = mockeri.bean(TestDataGenerator.class);
+    }
+
+    @Benchmark
+    public String dummySentence(){
+        return testData.dummySentence();
+    }
+
+    @Benchmark
+    public String dummyParagraph(){
+        return testData.dummyParagraph();
+    }
+}
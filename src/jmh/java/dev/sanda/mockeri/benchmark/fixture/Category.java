@@ -0,0 +1,20 @@
+package dev.sanda.mockeri.benchmark.fixture;
+
+import dev.sanda.mockeri.annotations.CompositeEntity;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+
+@Getter
+@Setter
+@Entity
+@CompositeEntity
+public class Category {
+    @Id
+    @GeneratedValue
+    private Long id;
+    private String name;
+}
@@ -0,0 +1,42 @@
+package dev.sanda.mockeri.benchmark.fixture;
+
+import dev.sanda.mockeri.annotations.MockData;
+import dev.sanda.mockeri.service.KeyWord;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+@Getter
+@Setter
+@Entity
+public class Customer {
+    @Id
+    @GeneratedValue
+    private Long id;
+    @MockData(keyword = KeyWord.NAME)
+    private String name;
+    @MockData(keyword = KeyWord.EMAIL)
+    private String email;
+    @MockData(min = 18, max = 90)
+    private Integer age;
+    @MockData(ofSet = {"BRONZE", "SILVER", "GOLD"})
+    private String tier;
+    private String bio;
+    private Long loyaltyPoints;
+    private Boolean active;
+    private LocalDate joined;
+    private LocalDateTime lastSeen;
+    @ElementCollection
+    private Set<String> nicknames;
+    @ElementCollection
+    private List<Integer> luckyNumbers;
+    @OneToMany
+    private List<OrderLine> basket;
+    @ManyToMany
+    private Set<Product> wishlist;
+}
@@ -0,0 +1,23 @@
+package dev.sanda.mockeri.benchmark.fixture;
+
+import dev.sanda.mockeri.annotations.CompositeEntity;
+import dev.sanda.mockeri.annotations.MockData;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+
+@Getter
+@Setter
+@Entity
+@CompositeEntity
+public class OrderLine {
+    @Id
+    @GeneratedValue
+    private Long id;
+    @MockData(min = 1, max = 20)
+    private Integer quantity;
+    private Double unitPrice;
+}
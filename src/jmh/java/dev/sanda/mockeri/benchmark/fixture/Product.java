@@ -0,0 +1,27 @@
+package dev.sanda.mockeri.benchmark.fixture;
+
+import dev.sanda.mockeri.annotations.MockData;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.List;
+import java.util.Set;
+
+@Getter
+@Setter
+@Entity
+public class Product {
+    @Id
+    @GeneratedValue
+    private Long id;
+    private String name;
+    @MockData(min = 1, max = 500)
+    private Double price;
+    private Integer stock;
+    private Boolean discontinued;
+    @ElementCollection
+    private List<String> tags;
+    @ManyToMany
+    private Set<Category> categories;
+}
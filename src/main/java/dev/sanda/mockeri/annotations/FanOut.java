@@ -0,0 +1,22 @@
+package dev.sanda.mockeri.annotations;
+
+import dev.sanda.mockeri.meta.FanOutDistribution;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import static dev.sanda.mockeri.meta.FanOutDistribution.UNIFORM;
+
+//how many entities are generated for a relationship collection, max is exclusive
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface FanOut {
+    //shorthand for a fixed fan out
+    int value() default -1;
+    FanOutDistribution distribution() default UNIFORM;
+    int min() default -1;
+    int max() default -1;
+    double mean() default -1;
+}
@@ -20,4 +20,6 @@ public @interface MockData {
     int max() default -1;
     int min() default -1;
     Class<? extends MockFactory> mockFactoryBean() default NullMockFactory.class;
+    //span of generated dates, back from the reference time for PAST_DATE, forward for FUTURE_DATE and either side otherwise
+    int years() default -1;
 }
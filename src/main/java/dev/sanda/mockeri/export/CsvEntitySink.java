@@ -0,0 +1,56 @@
+package dev.sanda.mockeri.export;
+
+import dev.sanda.mockeri.meta.TableMappingFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+public class CsvEntitySink extends TableEntitySink {
+    public CsvEntitySink(Path directory, TableMappingFactory tableMappingFactory, Function<Object, Object> idOf)
+            throws IOException {
+        super(directory, tableMappingFactory, idOf);
+    }
+
+    @Override
+    protected String fileName(String table) {
+        return table + ".csv";
+    }
+
+    @Override
+    protected void appendHeader(String[] columns, StringBuilder header) {
+        for (int i = 0; i < columns.length; i++) {
+            if(i > 0) header.append(',');
+            header.append(columns[i]);
+        }
+        header.append('\n');
+    }
+
+    @Override
+    protected void appendRow(String table, String[] columns, Object[] values, StringBuilder row) {
+        for (int i = 0; i < values.length; i++) {
+            if(i > 0) row.append(',');
+            if(values[i] != null) appendEscaped(values[i].toString(), row);
+        }
+        row.append('\n');
+    }
+
+    private void appendEscaped(String value, StringBuilder row){
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if(!quote){
+            row.append(value);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c == '"') row.append('"');
+            row.append(c);
+        }
+        row.append('"');
+    }
+}
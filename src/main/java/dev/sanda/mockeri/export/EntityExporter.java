@@ -0,0 +1,56 @@
+package dev.sanda.mockeri.export;
+
+import dev.sanda.datafi.reflection.ReflectionCache;
+import dev.sanda.mockeri.generator.EntityMocker;
+import dev.sanda.mockeri.generator.EntityPersister;
+import dev.sanda.mockeri.meta.ClassAccessorFactory;
+import dev.sanda.mockeri.meta.TableMappingFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+import static dev.sanda.datafi.DatafiStaticUtils.getId;
+
+@Component
+public class EntityExporter {
+    @Autowired
+    private ReflectionCache reflectionCache;
+    @Autowired
+    private TableMappingFactory tableMappingFactory;
+    @Autowired
+    private ClassAccessorFactory classAccessorFactory;
+    @Autowired
+    private EntityPersister entityPersister;
+    @Autowired
+    private EntityMocker entityMocker;
+
+    public void export(Path directory, ExportFormat format, Class<?> type, int quantity){
+        export(directory, format, () -> {
+            for (int i = 0; i < quantity; i++)
+                entityMocker.instantiateEntity(type);
+        });
+    }
+
+    //everything generated by the given work on the current thread is written to files instead of the database
+    public void export(Path directory, ExportFormat format, Runnable generation){
+        try (EntitySink sink = sink(directory, format)) {
+            entityPersister.export(new ExportSession(sink, tableMappingFactory, classAccessorFactory), generation);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private EntitySink sink(Path directory, ExportFormat format) throws IOException {
+        Function<Object, Object> idOf = entity -> getId(entity, reflectionCache);
+        switch (format){
+            case CSV: return new CsvEntitySink(directory, tableMappingFactory, idOf);
+            case NDJSON: return new NdjsonEntitySink(directory, classAccessorFactory, idOf);
+            case SQL: return new SqlEntitySink(directory, tableMappingFactory, idOf);
+        }
+        throw new IllegalArgumentException("unrecognized export format: " + format);
+    }
+}
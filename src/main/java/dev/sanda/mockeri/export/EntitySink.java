@@ -0,0 +1,8 @@
+package dev.sanda.mockeri.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface EntitySink extends Closeable {
+    void write(Object entity) throws IOException;
+}
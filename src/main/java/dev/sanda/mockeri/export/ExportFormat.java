@@ -0,0 +1,5 @@
+package dev.sanda.mockeri.export;
+
+public enum ExportFormat {
+    CSV, NDJSON, SQL
+}
@@ -0,0 +1,91 @@
+package dev.sanda.mockeri.export;
+
+import dev.sanda.mockeri.meta.ClassAccessorFactory;
+import dev.sanda.mockeri.meta.FieldAccessor;
+import dev.sanda.mockeri.meta.TableMapping;
+import dev.sanda.mockeri.meta.TableMappingFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+//routes generated entities to a sink, giving them synthetic ids in place of database generated ones
+public class ExportSession {
+    private final static int RESERVOIR_SIZE = 1024;
+
+    private final EntitySink sink;
+    private final TableMappingFactory tableMappingFactory;
+    private final ClassAccessorFactory classAccessorFactory;
+    private final Map<Class<?>, AtomicLong> sequences = new ConcurrentHashMap<>();
+    private final Map<Class<?>, IdReservoir> exportedIds = new ConcurrentHashMap<>();
+
+    public ExportSession(EntitySink sink, TableMappingFactory tableMappingFactory, ClassAccessorFactory classAccessorFactory) {
+        this.sink = sink;
+        this.tableMappingFactory = tableMappingFactory;
+        this.classAccessorFactory = classAccessorFactory;
+    }
+
+    public void write(Object entity){
+        FieldAccessor idAccessor = tableMappingFactory.tableMapping(entity.getClass()).getIdAccessor();
+        Object id = idAccessor != null ? assignId(entity, idAccessor) : null;
+        try {
+            sink.write(entity);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+        if(id != null) exportedIds.computeIfAbsent(entity.getClass(), type -> new IdReservoir()).offer(id);
+    }
+
+    //an id-only stand in for a previously exported entity, or null if none has been exported
+    public Object reference(Class<?> clazz, Object excludedId){
+        IdReservoir reservoir = exportedIds.get(clazz);
+        Object id = reservoir != null ? reservoir.pick(excludedId) : null;
+        if(id == null) return null;
+        TableMapping mapping = tableMappingFactory.tableMapping(clazz);
+        Object reference = classAccessorFactory.classAccessor(clazz).newInstance();
+        mapping.getIdAccessor().set(reference, id);
+        return reference;
+    }
+
+    private Object assignId(Object entity, FieldAccessor idAccessor){
+        Object id = idAccessor.get(entity);
+        Class<?> type = idAccessor.getField().getType();
+        if(id != null && !(type.isPrimitive() && ((Number) id).longValue() == 0))
+            return id;
+        long next = sequences.computeIfAbsent(entity.getClass(), clazz -> new AtomicLong()).incrementAndGet();
+        if(type.equals(Long.class) || type.equals(long.class)) id = next;
+        else if(type.equals(Integer.class) || type.equals(int.class)) id = (int) next;
+        else if(type.equals(String.class)) id = String.valueOf(next);
+        else if(type.equals(UUID.class)) id = UUID.randomUUID();
+        else return null;
+        idAccessor.set(entity, id);
+        return id;
+    }
+
+    //uniform sample of the exported ids, so memory stays constant however many rows are written
+    private static class IdReservoir {
+        private final Object[] ids = new Object[RESERVOIR_SIZE];
+        private long seen;
+
+        synchronized void offer(Object id){
+            if(seen < RESERVOIR_SIZE) ids[(int) seen] = id;
+            else {
+                long slot = ThreadLocalRandom.current().nextLong(seen + 1);
+                if(slot < RESERVOIR_SIZE) ids[(int) slot] = id;
+            }
+            seen++;
+        }
+
+        synchronized Object pick(Object excludedId){
+            int size = (int) Math.min(seen, RESERVOIR_SIZE);
+            if(size == 0) return null;
+            int index = ThreadLocalRandom.current().nextInt(size);
+            if(!ids[index].equals(excludedId)) return ids[index];
+            return size > 1 ? ids[(index + 1) % size] : null;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package dev.sanda.mockeri.export;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+//one file per entity type or table, rows are rendered into a single reused builder
+public abstract class FileEntitySink implements EntitySink {
+    private final Path directory;
+    private final Map<String, ChannelRowWriter> writers = new HashMap<>();
+    private final StringBuilder row = new StringBuilder();
+
+    protected FileEntitySink(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public synchronized void write(Object entity) throws IOException {
+        writeRows(entity);
+    }
+
+    //called one entity at a time
+    protected abstract void writeRows(Object entity) throws IOException;
+
+    protected boolean isOpen(String fileName){
+        return writers.containsKey(fileName);
+    }
+
+    //the builder emptied, to render the next row into
+    protected StringBuilder row(){
+        row.setLength(0);
+        return row;
+    }
+
+    protected void append(String fileName, CharSequence text) throws IOException {
+        ChannelRowWriter writer = writers.get(fileName);
+        if(writer == null){
+            writer = new ChannelRowWriter(directory.resolve(fileName));
+            writers.put(fileName, writer);
+        }
+        writer.write(text);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (ChannelRowWriter writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        writers.clear();
+        if(failure != null) throw failure;
+    }
+}
@@ -0,0 +1,94 @@
+package dev.sanda.mockeri.export;
+
+import dev.sanda.mockeri.meta.ClassAccessorFactory;
+import dev.sanda.mockeri.meta.FieldAccessor;
+
+import javax.persistence.Entity;
+import javax.persistence.Transient;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static dev.sanda.datafi.reflection.ReflectionCache.getClassFields;
+
+public class NdjsonEntitySink extends FileEntitySink {
+    private final ClassAccessorFactory classAccessorFactory;
+    private final Function<Object, Object> idOf;
+    private final Map<Class<?>, FieldAccessor[]> fieldsCache = new ConcurrentHashMap<>();
+
+    public NdjsonEntitySink(Path directory, ClassAccessorFactory classAccessorFactory, Function<Object, Object> idOf)
+            throws IOException {
+        super(directory);
+        this.classAccessorFactory = classAccessorFactory;
+        this.idOf = idOf;
+    }
+
+    @Override
+    protected void writeRows(Object entity) throws IOException {
+        StringBuilder row = row();
+        row.append('{');
+        FieldAccessor[] fields = fieldsCache.computeIfAbsent(entity.getClass(), this::exportedFields);
+        for (int i = 0; i < fields.length; i++) {
+            if(i > 0) row.append(',');
+            appendString(fields[i].getField().getName(), row);
+            row.append(':');
+            appendValue(fields[i].get(entity), row);
+        }
+        row.append("}\n");
+        append(entity.getClass().getSimpleName() + ".ndjson", row);
+    }
+
+    private FieldAccessor[] exportedFields(Class<?> type){
+        List<FieldAccessor> fields = new ArrayList<>();
+        for (Field field : getClassFields(type)) {
+            if(Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) ||
+               field.isAnnotationPresent(Transient.class))
+                continue;
+            fields.add(classAccessorFactory.fieldAccessor(field));
+        }
+        return fields.toArray(new FieldAccessor[0]);
+    }
+
+    //foreign keys, single or in collections, are written as the referenced id
+    private void appendValue(Object value, StringBuilder row){
+        if(value == null) row.append("null");
+        else if(value.getClass().isAnnotationPresent(Entity.class)) appendValue(idOf.apply(value), row);
+        else if(value instanceof Iterable){
+            row.append('[');
+            boolean first = true;
+            for (Object element : (Iterable<?>) value) {
+                if(!first) row.append(',');
+                appendValue(element, row);
+                first = false;
+            }
+            row.append(']');
+        }
+        else if(value instanceof Number || value instanceof Boolean) row.append(value);
+        else if(value instanceof Enum) appendString(((Enum<?>) value).name(), row);
+        else appendString(value.toString(), row);
+    }
+
+    private void appendString(String value, StringBuilder row){
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c){
+                case '"': row.append("\\\""); break;
+                case '\\': row.append("\\\\"); break;
+                case '\n': row.append("\\n"); break;
+                case '\r': row.append("\\r"); break;
+                case '\t': row.append("\\t"); break;
+                default:
+                    if(c < 0x20) row.append(String.format("\\u%04x", (int) c));
+                    else row.append(c);
+            }
+        }
+        row.append('"');
+    }
+}
@@ -0,0 +1,53 @@
+package dev.sanda.mockeri.export;
+
+import dev.sanda.mockeri.meta.TableMappingFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+public class SqlEntitySink extends TableEntitySink {
+    public SqlEntitySink(Path directory, TableMappingFactory tableMappingFactory, Function<Object, Object> idOf)
+            throws IOException {
+        super(directory, tableMappingFactory, idOf);
+    }
+
+    @Override
+    protected String fileName(String table) {
+        return table + ".sql";
+    }
+
+    @Override
+    protected void appendRow(String table, String[] columns, Object[] values, StringBuilder row) {
+        row.append("INSERT INTO ").append(table).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            if(i > 0) row.append(", ");
+            row.append(columns[i]);
+        }
+        row.append(") VALUES (");
+        for (int i = 0; i < values.length; i++) {
+            if(i > 0) row.append(", ");
+            appendLiteral(values[i], row);
+        }
+        row.append(");\n");
+    }
+
+    private void appendLiteral(Object value, StringBuilder row){
+        if(value == null){
+            row.append("NULL");
+            return;
+        }
+        if(value instanceof Number || value instanceof Boolean){
+            row.append(value);
+            return;
+        }
+        String text = value.toString();
+        row.append('\'');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == '\'') row.append('\'');
+            row.append(c);
+        }
+        row.append('\'');
+    }
+}
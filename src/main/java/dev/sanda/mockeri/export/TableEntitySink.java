@@ -0,0 +1,78 @@
+package dev.sanda.mockeri.export;
+
+import dev.sanda.mockeri.meta.ColumnMapping;
+import dev.sanda.mockeri.meta.JoinTableMapping;
+import dev.sanda.mockeri.meta.TableMapping;
+import dev.sanda.mockeri.meta.TableMappingFactory;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+//one file per table, rows of the join tables an entity owns are written along with it
+public abstract class TableEntitySink extends FileEntitySink {
+    private final static Logger logger = Logger.getLogger(TableEntitySink.class);
+
+    private final TableMappingFactory tableMappingFactory;
+    private final Function<Object, Object> idOf;
+    private final Map<Class<?>, String[]> columnNames = new HashMap<>();
+    private final Object[] joinRow = new Object[2];
+
+    protected TableEntitySink(Path directory, TableMappingFactory tableMappingFactory, Function<Object, Object> idOf)
+            throws IOException {
+        super(directory);
+        this.tableMappingFactory = tableMappingFactory;
+        this.idOf = idOf;
+    }
+
+    @Override
+    protected void writeRows(Object entity) throws IOException {
+        TableMapping mapping = tableMappingFactory.tableMapping(entity.getClass());
+        String[] columns = columnNames.computeIfAbsent(entity.getClass(), type -> columnNames(mapping));
+        List<ColumnMapping> columnMappings = mapping.getAllColumns();
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < values.length; i++) values[i] = columnMappings.get(i).columnValue(entity, idOf);
+        writeRow(mapping.getTableName(), columns, values);
+        if(mapping.getJoinTables().isEmpty()) return;
+        Object ownerId = idOf.apply(entity);
+        for (JoinTableMapping joinTable : mapping.getJoinTables()) {
+            String[] joinColumns = {joinTable.getOwnerColumn(), joinTable.getTargetColumn()};
+            for (Object target : joinTable.targets(entity)) {
+                joinRow[0] = ownerId;
+                joinRow[1] = idOf.apply(target);
+                writeRow(joinTable.getTableName(), joinColumns, joinRow);
+            }
+        }
+    }
+
+    private void writeRow(String table, String[] columns, Object[] values) throws IOException {
+        String fileName = fileName(table);
+        if(!isOpen(fileName)){
+            StringBuilder header = row();
+            appendHeader(columns, header);
+            append(fileName, header);
+        }
+        StringBuilder row = row();
+        appendRow(table, columns, values, row);
+        append(fileName, row);
+    }
+
+    //checked once per type, columns the mapping has no place for are left out of the files
+    private String[] columnNames(TableMapping mapping){
+        if(!mapping.isComplete())
+            logger.warn("Exporting " + mapping.getEntityType().getSimpleName() + " without some of its data, " +
+                        "there is no column for its " + mapping.getIncompleteReason());
+        List<ColumnMapping> columns = mapping.getAllColumns();
+        String[] names = new String[columns.size()];
+        for (int i = 0; i < names.length; i++) names[i] = columns.get(i).getName();
+        return names;
+    }
+
+    protected abstract String fileName(String table);
+
+    protected void appendHeader(String[] columns, StringBuilder header){}
+
+    protected abstract void appendRow(String table, String[] columns, Object[] values, StringBuilder row);
+}
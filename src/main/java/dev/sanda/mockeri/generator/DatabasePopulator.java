@@ -5,13 +5,29 @@ import dev.sanda.mockeri.annotations.CompositeEntity;
 import dev.sanda.mockeri.annotations.MockEntity;
 import dev.sanda.datafi.reflection.CachedEntityTypeInfo;
 import dev.sanda.datafi.reflection.ReflectionCache;
+import dev.sanda.datafi.service.DataManager;
+import dev.sanda.mockeri.export.EntityExporter;
+import dev.sanda.mockeri.export.ExportFormat;
+import dev.sanda.mockeri.metrics.PopulationMetrics;
+import lombok.Getter;
+import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.*;
 
 @Component
 public class DatabasePopulator {
@@ -19,31 +35,197 @@ public class DatabasePopulator {
     private String minQuantity;
     @Value("${mockeri.quantity.max:50}")
     private String maxQuantity;
+    @Value("${mockeri.population.chunk-size:0}")
+    private String chunkSize;
+    @Value("${mockeri.population.async:false}")
+    private String async;
+    @Value("${mockeri.population.top-up:false}")
+    private String topUp;
+    @Value("${mockeri.export.format:}")
+    private String exportFormat;
+    @Value("${mockeri.export.directory:mockeri-export}")
+    private String exportDirectory;
+    //a queue depth above 0 populates each type through the generate-then-persist pipeline
+    @Value("${mockeri.pipeline.queue-depth:0}")
+    private String pipelineQueueDepth;
+    @Value("${mockeri.pipeline.writers:1}")
+    private String pipelineWriters;
+    @Value("${mockeri.pipeline.generators:0}")
+    private String pipelineGenerators;
 
     @Autowired
     private ReflectionCache reflectionCache;
     @Autowired
     private EntityMocker entityMocker;
+    @Autowired
+    private PopulationScheduler populationScheduler;
+    @Autowired
+    private EntityPersister entityPersister;
+    @Autowired
+    private DatasetSnapshot datasetSnapshot;
+    @Autowired
+    private ReferenceReusePolicy referenceReusePolicy;
+    @Autowired
+    private DataManager dataManager;
+    @Autowired
+    private EntityExporter entityExporter;
+    @Autowired
+    private PopulationMetrics metrics;
+    @Autowired
+    private PopulationPlanner planner;
+    @Autowired
+    private PopulationBudget budget;
+    @Autowired
+    private PopulationPipeline pipeline;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationContext applicationContext;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final static Logger logger = Logger.getLogger(DatabasePopulator.class);
+    private final static int PROGRESS_STEP = 100;
+
+    @Getter
+    private final PopulationProgress progress = new PopulationProgress();
+    @Getter
+    private volatile CompletableFuture<Void> population = CompletableFuture.completedFuture(null);
+    private ExecutorService populationExecutor;
 
     @PostConstruct
     private void populateDatabase(){
-        if(isDummyPopulateMode()){
+        if(isDummyPopulateMode() && !isAsync()) populate();
+    }
+
+    //only once the context has fully started, so the background thread never runs against a half built context
+    @EventListener
+    public void onContextRefreshed(ContextRefreshedEvent event){
+        if(event.getApplicationContext() == applicationContext && isDummyPopulateMode() && isAsync()) startPopulation();
+    }
+
+    @EventListener
+    public void onContextClosed(ContextClosedEvent event){
+        if(event.getApplicationContext() != applicationContext || populationExecutor == null) return;
+        population.cancel(true);
+        populationExecutor.shutdownNow();
+        try {
+            //the entity manager factory is closed right after this
+            if(!populationExecutor.awaitTermination(10, TimeUnit.SECONDS))
+                logger.warn("Background population is still running as the context closes");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    synchronized void startPopulation(){
+        if(populationExecutor != null) return;
+        populationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mockeri-population");
+            thread.setDaemon(true);
+            return thread;
+        });
+        population = CompletableFuture.runAsync(this::populate, populationExecutor);
+        population.whenComplete((result, error) -> {
+            populationExecutor.shutdown();
+            if(population.isCancelled()) logger.info("Background population cancelled");
+            else if(error != null) logger.error("Background population failed", error);
+        });
+    }
+
+    public void awaitPopulation(){
+        population.join();
+    }
+
+    public boolean awaitPopulation(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            population.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void populate(){
+        try {
+            if(!isExportMode() && datasetSnapshot.isEnabled() && datasetSnapshot.canRestore()){
+                datasetSnapshot.restore();
+                return;
+            }
+            //nothing is reusable until this run says so, top up marks the types already at their target below
+            referenceReusePolicy.reset();
+            budget.reset();
             int min = Integer.parseInt(minQuantity);
             int max = Integer.parseInt(maxQuantity);
             int actualQuantity;
+            Map<CachedEntityTypeInfo, Integer> plan = new LinkedHashMap<>();
             for (Map.Entry<String, CachedEntityTypeInfo> entry : reflectionCache.getEntitiesCache().entrySet()) {
-                String name = entry.getKey();
                 CachedEntityTypeInfo type = entry.getValue();
                 MockEntity mockEntityAnnotation = type.getClazz().getAnnotation(MockEntity.class);
                 if(mockEntityAnnotation != null) actualQuantity = mockEntityAnnotation.quantity();
                 else actualQuantity = ThreadLocalRandom.current().nextInt(min, max);
                 if (isPersistable(type)) {
-                    instantiateEntities(name, actualQuantity);
+                    if(isTopUpMode() && !isExportMode()) actualQuantity = topUpQuantity(type, actualQuantity, min);
+                    plan.put(type, actualQuantity);
                 }
             }
+            PopulationPlanner.Estimate estimate = planner.estimate(plan);
+            if(estimate.isOverBudget()) logger.warn(estimate);
+            else logger.info(estimate);
+            Map<String, Integer> plannedRows = new LinkedHashMap<>();
+            plan.forEach((type, quantity) -> plannedRows.put(type.getClazz().getSimpleName(), quantity));
+            progress.start(plannedRows);
+            if(isExportMode()){
+                entityExporter.export(Paths.get(exportDirectory), ExportFormat.valueOf(exportFormat.toUpperCase()), () ->
+                        plan.forEach((type, quantity) -> instantiateChunk(type.getClazz().getSimpleName(), quantity)));
+                return;
+            }
+            populationScheduler.schedule(plan, (type, quantity) -> {
+                final String name = type.getClazz().getSimpleName();
+                if(isPipelineMode())
+                    pipeline.populate(type.getClazz(), quantity,
+                            Integer.parseInt(pipelineQueueDepth), Integer.parseInt(pipelineWriters), Integer.parseInt(pipelineGenerators),
+                            rows -> progress.increment(name, rows));
+                else instantiateEntities(name, quantity);
+                //at its target now, so later relationships to it link to the existing rows
+                if(isTopUpMode()) referenceReusePolicy.markReusable(type.getClazz());
+            });
+            if(datasetSnapshot.isEnabled() && !population.isCancelled())
+                datasetSnapshot.write();
+        } finally {
+            progress.finish();
+            if(metrics.isEnabled()) logger.info(metrics.getReport());
         }
     }
 
+    private boolean isExportMode(){
+        return !exportFormat.equals("");
+    }
+
+    private boolean isPipelineMode(){
+        return Integer.parseInt(pipelineQueueDepth) > 0;
+    }
+
+    private boolean isAsync(){
+        return Boolean.parseBoolean(async);
+    }
+
+    private boolean isTopUpMode(){
+        return Boolean.parseBoolean(topUp);
+    }
+
+    //only the rows missing from the target are generated, types already at their target are left alone
+    private int topUpQuantity(CachedEntityTypeInfo type, int randomTarget, int min){
+        dataManager.setType(type.getClazz());
+        long existing = dataManager.count();
+        MockEntity mockEntityAnnotation = type.getClazz().getAnnotation(MockEntity.class);
+        long target = mockEntityAnnotation != null ? mockEntityAnnotation.quantity() : (existing >= min ? existing : randomTarget);
+        if(existing >= target) referenceReusePolicy.markReusable(type.getClazz());
+        return (int) Math.max(0, target - existing);
+    }
+
     public static boolean isDummyPopulateMode() {
         return System.getenv("DUMMY_POPULATE") != null && System.getenv("DUMMY_POPULATE").equals("true");
     }
@@ -57,11 +239,47 @@ public class DatabasePopulator {
 
     private void instantiateEntities(String name, int amountToAdd) {
         try{
-            for (int i = 0; i < amountToAdd; i++)
-                entityMocker.instantiateEntity(name);
+            int chunk = Integer.parseInt(chunkSize);
+            if(chunk <= 0){
+                instantiateChunk(name, amountToAdd);
+                return;
+            }
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            for (int offset = 0; offset < amountToAdd; offset += chunk) {
+                final int chunkQuantity = Math.min(chunk, amountToAdd - offset);
+                transactionTemplate.execute(status -> {
+                    instantiateChunk(name, chunkQuantity);
+                    //nothing generated so far needs to stay managed, later references are picked from the ids registered as each chunk commits
+                    entityManager.flush();
+                    entityManager.clear();
+                    return null;
+                });
+            }
         }catch (Exception e){
             e.printStackTrace();
             throw new RuntimeException(e);
         }
     }
+
+    //in slices so progress keeps moving and the generated roots don't all stay reachable at once
+    private void instantiateChunk(String name, int quantity) {
+        final Class<?> type = reflectionCache.getEntitiesCache().get(name).getClazz();
+        entityPersister.batch(() -> {
+            for (int offset = 0; offset < quantity; offset += PROGRESS_STEP) {
+                final int slice = Math.min(PROGRESS_STEP, quantity - offset);
+                //checked before every root, a single root can add many rows through its relationships
+                int done = 0;
+                while (done < slice && !population.isCancelled() && budget.allowedRoots(type, 1) > 0){
+                    entityMocker.instantiateEntity(type);
+                    done++;
+                }
+                progress.increment(name, done);
+                if(population.isCancelled()) return;
+                if(done < slice){
+                    logger.warn("Row budget exhausted, skipping the remaining " + (quantity - offset - done) + " " + name + " rows");
+                    return;
+                }
+            }
+        });
+    }
 }
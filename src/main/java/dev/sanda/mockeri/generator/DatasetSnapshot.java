@@ -0,0 +1,493 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.datafi.reflection.CachedEntityTypeInfo;
+import dev.sanda.datafi.reflection.ReflectionCache;
+import dev.sanda.mockeri.meta.IdSequence;
+import dev.sanda.mockeri.meta.TableMapping;
+import dev.sanda.mockeri.meta.TableMappingFactory;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.*;
+import javax.sql.DataSource;
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.sql.*;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static dev.sanda.datafi.reflection.ReflectionCache.getClassFields;
+import static dev.sanda.mockeri.meta.TableMappingFactory.toSnakeCase;
+
+@Component
+public class DatasetSnapshot {
+    private final static String MAGIC = "MOCKERI-SNAPSHOT-1";
+    private final static int BLOCK_SIZE = 8192;
+
+    @Value("${mockeri.snapshot.path:}")
+    private String snapshotPath;
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private ReflectionCache reflectionCache;
+    @Autowired
+    private TableMappingFactory tableMappingFactory;
+    @Autowired
+    private PopulationScheduler populationScheduler;
+
+    private final static Logger logger = Logger.getLogger(DatasetSnapshot.class);
+
+    public boolean isEnabled(){
+        return !snapshotPath.equals("");
+    }
+
+    public boolean canRestore(){
+        Path path = Paths.get(snapshotPath);
+        if(!Files.exists(path)) return false;
+        try (DataInputStream in = open(path)) {
+            if(!in.readUTF().equals(MAGIC) || !in.readUTF().equals(fingerprint())){
+                logger.info("Entity model changed since " + snapshotPath + " was written, regenerating dataset");
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Cannot read snapshot " + snapshotPath + ", regenerating dataset", e);
+            return false;
+        }
+    }
+
+    public void write(){
+        Path path = Paths.get(snapshotPath);
+        try {
+            if(path.toAbsolutePath().getParent() != null) Files.createDirectories(path.toAbsolutePath().getParent());
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+        try (Connection connection = dataSource.getConnection();
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     new GZIPOutputStream(Files.newOutputStream(path), 1 << 16)))) {
+            out.writeUTF(MAGIC);
+            out.writeUTF(fingerprint());
+            List<String> tables = tablesInRestoreOrder(connection);
+            out.writeInt(tables.size());
+            for (String table : tables) writeTable(connection, table, out);
+            logger.info("Wrote dataset snapshot of " + tables.size() + " tables to " + snapshotPath);
+        } catch (IOException | SQLException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    //all or nothing, a dataset isn't mixed into tables that already hold rows
+    public void restore(){
+        Path path = Paths.get(snapshotPath);
+        try (Connection connection = dataSource.getConnection();
+             DataInputStream in = open(path)) {
+            in.readUTF();
+            in.readUTF();
+            List<String> populated = new ArrayList<>();
+            for (String table : tablesInRestoreOrder(connection))
+                if(!isEmpty(connection, table)) populated.add(table);
+            if(!populated.isEmpty()){
+                logger.warn("Not restoring " + snapshotPath + ", " + String.join(", ", populated) + " already contain data");
+                return;
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                int tableCount = in.readInt();
+                for (int i = 0; i < tableCount; i++) restoreTable(connection, in);
+                connection.commit();
+                resetIdGenerators(connection);
+                logger.info("Restored dataset snapshot of " + tableCount + " tables from " + snapshotPath);
+            } catch (IOException | SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (IOException | SQLException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private DataInputStream open(Path path) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path), 1 << 16)));
+    }
+
+    //any change to the entity set, their fields or the field annotations invalidates the snapshot
+    private String fingerprint(){
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            List<String> names = new ArrayList<>(reflectionCache.getEntitiesCache().keySet());
+            Collections.sort(names);
+            for (String name : names) {
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                for (Field field : getClassFields(reflectionCache.getEntitiesCache().get(name).getClazz())) {
+                    digest.update(field.getName().getBytes(StandardCharsets.UTF_8));
+                    digest.update(field.getGenericType().getTypeName().getBytes(StandardCharsets.UTF_8));
+                    digest.update(Arrays.toString(field.getAnnotations()).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (Exception e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    //entity tables referenced by others come first, join and collection tables last
+    private List<String> tablesInRestoreOrder(Connection connection) throws SQLException {
+        Map<CachedEntityTypeInfo, Set<CachedEntityTypeInfo>> dependencies =
+                populationScheduler.dependencyGraph(reflectionCache.getEntitiesCache().values());
+        List<String> ordered = new ArrayList<>();
+        Set<CachedEntityTypeInfo> done = new HashSet<>();
+        while (done.size() < dependencies.size()){
+            CachedEntityTypeInfo next = null;
+            for (Map.Entry<CachedEntityTypeInfo, Set<CachedEntityTypeInfo>> entry : dependencies.entrySet()) {
+                if(done.contains(entry.getKey())) continue;
+                if(next == null) next = entry.getKey();//cycle fallback
+                if(done.containsAll(entry.getValue())){
+                    next = entry.getKey();
+                    break;
+                }
+            }
+            done.add(next);
+            ordered.add(tableMappingFactory.tableMapping(next.getClazz()).getTableName().toLowerCase());
+        }
+        for (CachedEntityTypeInfo type : dependencies.keySet())
+            ordered.addAll(joinTables(type.getClazz()));
+        Map<String, String> existing = existingTables(connection);
+        //anything else in the schema, such as migration history or sequence tables, isn't part of the dataset
+        List<String> result = new ArrayList<>();
+        for (String table : ordered) {
+            if(existing.containsKey(table)) result.add(existing.remove(table));
+            else logger.warn("Mapped table " + table + " not found, it is left out of the snapshot");
+        }
+        return result;
+    }
+
+    //join tables of owned collections and collection tables of element collections, named as spring boot does by default
+    private List<String> joinTables(Class<?> clazz){
+        //collection tables are prefixed with the entity name, join tables with the owning table's
+        Entity entity = clazz.getAnnotation(Entity.class);
+        String entityName = entity != null && !entity.name().equals("") ? entity.name() : clazz.getSimpleName();
+        String ownerTable = tableMappingFactory.tableMapping(clazz).getTableName();
+        List<String> tables = new ArrayList<>();
+        for (Field field : getClassFields(clazz)) {
+            String name;
+            if(field.isAnnotationPresent(ElementCollection.class))
+                name = field.isAnnotationPresent(CollectionTable.class) && !field.getAnnotation(CollectionTable.class).name().equals("")
+                        ? field.getAnnotation(CollectionTable.class).name()
+                        : toSnakeCase(entityName) + "_" + toSnakeCase(field.getName());
+            else if((field.isAnnotationPresent(ManyToMany.class) && field.getAnnotation(ManyToMany.class).mappedBy().equals("")) ||
+                    (field.isAnnotationPresent(OneToMany.class) && field.getAnnotation(OneToMany.class).mappedBy().equals("") &&
+                     !field.isAnnotationPresent(JoinColumn.class)))
+                name = field.isAnnotationPresent(JoinTable.class) && !field.getAnnotation(JoinTable.class).name().equals("")
+                        ? field.getAnnotation(JoinTable.class).name()
+                        : toSnakeCase(ownerTable) + "_" + toSnakeCase(field.getName());
+            else continue;
+            tables.add(name.toLowerCase());
+        }
+        return tables;
+    }
+
+    private Map<String, String> existingTables(Connection connection) throws SQLException {
+        Map<String, String> existing = new LinkedHashMap<>();
+        try (ResultSet tables = connection.getMetaData()
+                .getTables(connection.getCatalog(), null, "%", new String[]{"TABLE"})) {
+            while (tables.next()) {
+                String schema = tables.getString("TABLE_SCHEM");
+                if(schema != null && schema.equalsIgnoreCase("INFORMATION_SCHEMA")) continue;
+                String name = tables.getString("TABLE_NAME");
+                existing.put(name.toLowerCase(), name);
+            }
+        }
+        return existing;
+    }
+
+    //restored rows keep their ids, so every generator has to continue past the highest one
+    private void resetIdGenerators(Connection connection) throws SQLException {
+        Map<String, Long> sequences = new LinkedHashMap<>();
+        Map<String, String> existing = existingTables(connection);
+        for (CachedEntityTypeInfo type : reflectionCache.getEntitiesCache().values()) {
+            TableMapping mapping = tableMappingFactory.tableMapping(type.getClazz());
+            Field idField = mapping.getIdField();
+            if(idField == null || !idField.isAnnotationPresent(GeneratedValue.class) || !isIntegral(idField.getType()) ||
+               !existing.containsKey(mapping.getTableName().toLowerCase()))
+                continue;
+            String table = existing.get(mapping.getTableName().toLowerCase());
+            long maxId = maxId(connection, table, mapping.getIdColumn());
+            GeneratedValue generatedValue = idField.getAnnotation(GeneratedValue.class);
+            if(generatedValue.strategy() == GenerationType.IDENTITY){
+                execute(connection, identityRestart(connection, table, mapping.getIdColumn(), maxId + 1));
+                continue;
+            }
+            if(generatedValue.strategy() == GenerationType.TABLE){
+                logger.warn("Table generated ids of " + table + " aren't reset after a restore");
+                continue;
+            }
+            IdSequence sequence = mapping.getIdSequence();
+            //a pooled optimizer hands out the allocation below the value it reads
+            long next = maxId + sequence.getAllocationSize();
+            sequences.merge(sequence.getName(), next, Math::max);
+        }
+        for (Map.Entry<String, Long> sequence : sequences.entrySet()) {
+            //databases without sequences keep the hibernate sequence in a table of its own
+            String sequenceTable = existing.get(sequence.getKey().toLowerCase());
+            execute(connection, sequenceTable != null
+                    ? "UPDATE " + sequenceTable + " SET next_val = " + sequence.getValue()
+                    : "ALTER SEQUENCE " + sequence.getKey() + " RESTART WITH " + sequence.getValue());
+        }
+    }
+
+    private String identityRestart(Connection connection, String table, String column, long next) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName().toLowerCase();
+        if(product.contains("postgres"))
+            return "SELECT setval(pg_get_serial_sequence('" + table + "', '" + column + "'), " + next + ", false)";
+        if(product.contains("mysql") || product.contains("mariadb"))
+            return "ALTER TABLE " + table + " AUTO_INCREMENT = " + next;
+        if(product.contains("microsoft"))
+            return "DBCC CHECKIDENT ('" + table + "', RESEED, " + (next - 1) + ")";
+        return "ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + next;
+    }
+
+    private long maxId(Connection connection, String table, String column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet max = statement.executeQuery("SELECT MAX(" + column + ") FROM " + table)) {
+            return max.next() ? max.getLong(1) : 0;
+        }
+    }
+
+    //each reset is committed on its own, so one the database doesn't support doesn't undo the others
+    private void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            logger.warn("Cannot reset id generator with " + sql + ", new rows may collide with restored ids", e);
+        }
+    }
+
+    private boolean isIntegral(Class<?> type){
+        return type.equals(Long.class) || type.equals(long.class) ||
+               type.equals(Integer.class) || type.equals(int.class) ||
+               type.equals(Short.class) || type.equals(short.class);
+    }
+
+    private void writeTable(Connection connection, String table, DataOutputStream out) throws SQLException, IOException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT * FROM " + table)) {
+            ResultSetMetaData meta = rows.getMetaData();
+            int columnCount = meta.getColumnCount();
+            out.writeUTF(table);
+            out.writeInt(columnCount);
+            int[] types = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                out.writeUTF(meta.getColumnName(i + 1));
+                types[i] = meta.getColumnType(i + 1);
+                out.writeInt(types[i]);
+            }
+            //column-oriented blocks, so only one block is held in memory at a time
+            Object[][] block = new Object[columnCount][BLOCK_SIZE];
+            int blockRows = 0;
+            while (rows.next()) {
+                for (int i = 0; i < columnCount; i++) block[i][blockRows] = readColumn(rows, i + 1, types[i]);
+                if(++blockRows == BLOCK_SIZE){
+                    writeBlock(out, types, block, blockRows);
+                    blockRows = 0;
+                }
+            }
+            if(blockRows > 0) writeBlock(out, types, block, blockRows);
+            out.writeInt(0);
+        }
+    }
+
+    private Object readColumn(ResultSet rows, int column, int type) throws SQLException {
+        switch (type){
+            case Types.DATE: return rows.getDate(column);
+            case Types.TIME: return rows.getTime(column);
+            case Types.TIMESTAMP: return rows.getTimestamp(column);
+            case Types.TIMESTAMP_WITH_TIMEZONE: return rows.getObject(column, OffsetDateTime.class);
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB: return rows.getBytes(column);
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.LONGNVARCHAR:
+            case Types.OTHER: return rows.getString(column);
+            default: return rows.getObject(column);
+        }
+    }
+
+    private void writeBlock(DataOutputStream out, int[] types, Object[][] block, int rows) throws IOException {
+        out.writeInt(rows);
+        for (int column = 0; column < types.length; column++)
+            for (int row = 0; row < rows; row++)
+                writeValue(out, types[column], block[column][row]);
+    }
+
+    private void writeValue(DataOutputStream out, int type, Object value) throws IOException {
+        if(value == null){
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        switch (type){
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT: out.writeLong(((Number) value).longValue());
+                break;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL: out.writeDouble(((Number) value).doubleValue());
+                break;
+            case Types.BOOLEAN:
+            case Types.BIT: out.writeBoolean((Boolean) value);
+                break;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.OTHER:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+            case Types.TIMESTAMP_WITH_TIMEZONE: writeString(out, value.toString());
+                break;
+            case Types.DATE: out.writeLong(((java.sql.Date) value).toLocalDate().toEpochDay());
+                break;
+            case Types.TIME: out.writeLong(((Time) value).toLocalTime().toNanoOfDay());
+                break;
+            case Types.TIMESTAMP: {
+                Timestamp timestamp = (Timestamp) value;
+                out.writeLong(timestamp.getTime());
+                out.writeInt(timestamp.getNanos());
+            } break;
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB: {
+                byte[] bytes = (byte[]) value;
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } break;
+            default: throw new IllegalArgumentException("Unsupported JDBC column type " + type + " for a snapshot");
+        }
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void restoreTable(Connection connection, DataInputStream in) throws IOException, SQLException {
+        String table = in.readUTF();
+        int columnCount = in.readInt();
+        String[] columns = new String[columnCount];
+        int[] types = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = in.readUTF();
+            types[i] = in.readInt();
+        }
+        String insert = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" +
+                String.join(", ", Collections.nCopies(columnCount, "?")) + ")";
+        Object[][] block = new Object[columnCount][BLOCK_SIZE];
+        try (PreparedStatement statement = connection.prepareStatement(insert)) {
+            int rows;
+            while ((rows = in.readInt()) > 0) {
+                for (int column = 0; column < columnCount; column++)
+                    for (int row = 0; row < rows; row++)
+                        block[column][row] = readValue(in, types[column]);
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < columnCount; column++) {
+                        if(block[column][row] == null) statement.setNull(column + 1, types[column]);
+                        //left to the database to convert, e.g. a uuid or json value read back as text
+                        else if(types[column] == Types.OTHER) statement.setObject(column + 1, block[column][row], Types.OTHER);
+                        else statement.setObject(column + 1, block[column][row]);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private boolean isEmpty(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return !count.next() || count.getLong(1) == 0;
+        }
+    }
+
+    private Object readValue(DataInputStream in, int type) throws IOException {
+        if(!in.readBoolean()) return null;
+        switch (type){
+            case Types.BIGINT: return in.readLong();
+            case Types.INTEGER: return (int) in.readLong();
+            case Types.SMALLINT: return (short) in.readLong();
+            case Types.TINYINT: return (byte) in.readLong();
+            case Types.DOUBLE:
+            case Types.FLOAT: return in.readDouble();
+            case Types.REAL: return (float) in.readDouble();
+            case Types.BOOLEAN:
+            case Types.BIT: return in.readBoolean();
+            case Types.NUMERIC:
+            case Types.DECIMAL: return new java.math.BigDecimal(readString(in));
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.OTHER: return readString(in);
+            case Types.TIMESTAMP_WITH_TIMEZONE: return OffsetDateTime.parse(readString(in));
+            case Types.DATE: return java.sql.Date.valueOf(java.time.LocalDate.ofEpochDay(in.readLong()));
+            case Types.TIME: return Time.valueOf(LocalTime.ofNanoOfDay(in.readLong()));
+            case Types.TIMESTAMP: {
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            }
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB: {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            }
+            default: throw new IllegalArgumentException("Unsupported JDBC column type " + type + " in snapshot " + snapshotPath);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package dev.sanda.mockeri.generator;
+
+import lombok.Getter;
+import org.joda.time.DateTimeZone;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+//date ranges are resolved to epoch bounds once, each value is then a single random draw within them
+@Component
+public class DateGenerator {
+    private final static long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    //an ISO date or date-time that past and future are relative to, the startup time if not set
+    @Value("${mockeri.dates.reference:}")
+    private String referenceProperty;
+    @Value("${mockeri.dates.past-years:20}")
+    private String pastYearsProperty;
+    @Value("${mockeri.dates.future-years:20}")
+    private String futureYearsProperty;
+
+    private LocalDateTime reference;
+    @Getter
+    private DateRange pastRange, futureRange, defaultRange;
+
+    public static class DateRange {
+        private final long minDay, maxDay, minSecond, maxSecond;
+
+        private DateRange(LocalDateTime from, LocalDateTime to) {
+            this.minDay = from.toLocalDate().toEpochDay();
+            this.maxDay = to.toLocalDate().toEpochDay();
+            this.minSecond = from.toEpochSecond(ZoneOffset.UTC);
+            this.maxSecond = to.toEpochSecond(ZoneOffset.UTC);
+        }
+
+        private long day(){
+            return ThreadLocalRandom.current().nextLong(minDay, maxDay + 1);
+        }
+
+        private long second(){
+            return ThreadLocalRandom.current().nextLong(minSecond, maxSecond + 1);
+        }
+
+        public LocalDate localDate(){
+            return LocalDate.ofEpochDay(day());
+        }
+
+        public LocalDateTime localDateTime(){
+            return LocalDateTime.ofEpochSecond(second(), 0, ZoneOffset.UTC);
+        }
+
+        public Instant instant(){
+            return Instant.ofEpochSecond(second());
+        }
+
+        public org.joda.time.LocalDate jodaLocalDate(){
+            return new org.joda.time.LocalDate(day() * SECONDS_PER_DAY * 1000, DateTimeZone.UTC);
+        }
+
+        public org.joda.time.LocalDateTime jodaLocalDateTime(){
+            return new org.joda.time.LocalDateTime(second() * 1000, DateTimeZone.UTC);
+        }
+
+        //null if the type isn't a supported date type
+        public Supplier<?> source(Class<?> type){
+            if(type.equals(LocalDate.class)) return this::localDate;
+            if(type.equals(LocalDateTime.class)) return this::localDateTime;
+            if(type.equals(Instant.class)) return this::instant;
+            if(type.equals(org.joda.time.LocalDate.class)) return this::jodaLocalDate;
+            if(type.equals(org.joda.time.LocalDateTime.class)) return this::jodaLocalDateTime;
+            return null;
+        }
+    }
+
+    @PostConstruct
+    private void init(){
+        reference = referenceProperty.equals("") ? LocalDateTime.now() : parseReference(referenceProperty);
+        int pastYears = Integer.parseInt(pastYearsProperty);
+        int futureYears = Integer.parseInt(futureYearsProperty);
+        pastRange = new DateRange(reference.minusYears(pastYears), reference);
+        futureRange = new DateRange(reference, reference.plusYears(futureYears));
+        defaultRange = new DateRange(reference.minusYears(pastYears), reference.plusYears(futureYears));
+    }
+
+    public boolean supports(Class<?> type){
+        return defaultRange.source(type) != null;
+    }
+
+    //the given number of years up to the reference time, or the configured past range if years isn't positive
+    public DateRange past(int years){
+        if(years <= 0) return pastRange;
+        return new DateRange(reference.minusYears(years), reference);
+    }
+
+    public DateRange future(int years){
+        if(years <= 0) return futureRange;
+        return new DateRange(reference, reference.plusYears(years));
+    }
+
+    //the given number of years either side of the reference time
+    public DateRange around(int years){
+        if(years <= 0) return defaultRange;
+        return new DateRange(reference.minusYears(years), reference.plusYears(years));
+    }
+
+    private LocalDateTime parseReference(String value){
+        return value.contains("T") ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+    }
+}
@@ -1,346 +1,541 @@
 package dev.sanda.mockeri.generator;
 
 import com.maximeroussy.invitrode.WordGenerator;
-import dev.sanda.mockeri.annotations.MockData;
 import lombok.Getter;
-import org.apache.log4j.Level;
-import org.apache.log4j.Logger;
 import dev.sanda.datafi.reflection.ReflectionCache;
-import dev.sanda.datafi.service.DataManager;
+import dev.sanda.mockeri.meta.ClassAccessorFactory;
 import dev.sanda.mockeri.meta.CollectionInstantiator;
+import dev.sanda.mockeri.meta.FanOutPolicy;
+import dev.sanda.mockeri.meta.FieldAccessor;
 import dev.sanda.mockeri.meta.FieldMetaInfo;
-import dev.sanda.mockeri.meta.FieldMetaInfoFactory;
-import dev.sanda.mockeri.service.MockFactory;
+import dev.sanda.mockeri.meta.MockDataSource;
+import dev.sanda.mockeri.meta.MockUpdateOptions;
+import dev.sanda.mockeri.meta.MockingContext;
+import dev.sanda.mockeri.metrics.PopulationMetrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.transaction.Transactional;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import static com.google.common.collect.Maps.immutableEntry;
 import static dev.sanda.datafi.DatafiStaticUtils.getId;
-import static dev.sanda.datafi.reflection.CachedEntityTypeInfo.genDefaultInstance;
 import static dev.sanda.datafi.reflection.ReflectionCache.getClassFields;
 import static dev.sanda.mockeri.StaticUtils.*;
-import static dev.sanda.mockeri.generator.TestDataGenerator.randomFrom;
-import static dev.sanda.mockeri.meta.Args.INSTANTIATION_STACK;
-import static dev.sanda.mockeri.meta.Args.NO_PERSIST;
 import static dev.sanda.mockeri.meta.CircularReferenceException.throwGeneralCircularReferenceException;
-import static dev.sanda.mockeri.service.CustomizedMockers.getCustomKeyword;
-import static dev.sanda.mockeri.service.CustomizedMockers.getMockFactory;
 
 @Transactional
 @Component("EntityMocker")
 @DependsOn("CustomizedMockers")
 @SuppressWarnings("unchecked")
 public class EntityMocker {
+    private final static int MAX_BULK_BATCH_SIZE = 500;
+
+    @Value("${mockeri.fan-out.default:uniform(5,10)}")
+    private String defaultFanOutProperty;
+    @Value("${mockeri.generation.parallelism:1}")
+    private String generationParallelism;
+    @Value("${mockeri.generation.parallel-depth:2}")
+    private String parallelDepthProperty;
+
     @Autowired
     private ReflectionCache reflectionCache;
     @Autowired
-    private TestDataGenerator testData;
+    private EntityPersister entityPersister;
+    @Autowired
+    private ReferenceReusePolicy referenceReusePolicy;
+    @Autowired
+    private PopulationMetrics metrics;
     @Autowired
-    private DataManager dataManager;
+    private IdRegistry idRegistry;
     @Autowired
-    private FieldMetaInfoFactory fieldMetaInfoFactory;
+    private MockingPlanFactory mockingPlanFactory;
+    @Autowired
+    private ClassAccessorFactory classAccessorFactory;
+    @Autowired
+    private InstantiationTracer tracer;
+    @Autowired
+    private PopulationBudget budget;
     @Autowired
     @Getter
     private CollectionInstantiator collectionInstantiator;
 
+    @Getter
+    private FanOutPolicy defaultFanOut;
+    //null unless subgraphs are generated in parallel
+    private ForkJoinPool generationPool;
+    private int parallelDepth;
+
+    private final ThreadLocal<MockingContext> contexts = ThreadLocal.withInitial(MockingContext::new);
+    private final Map<Map.Entry<Class<?>, String>, Supplier<Object>> fieldValueSources = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    private void init(){
+        defaultFanOut = FanOutPolicy.parse(defaultFanOutProperty);
+        int parallelism = Integer.parseInt(generationParallelism);
+        parallelDepth = Integer.parseInt(parallelDepthProperty);
+        if(parallelism > 1)
+            generationPool = new ForkJoinPool(parallelism, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("mockeri-generation-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+    }
+
+    @PreDestroy
+    private void shutdown(){
+        if(generationPool != null) generationPool.shutdownNow();
+    }
+
     public <T> T instantiateEntity(Class<?> clazz){
-        return instantiateEntity(clazz, new HashMap<String, Object>(){{
-            put(INSTANTIATION_STACK, new Stack<>());
-        }});
+        return instantiateEntity(clazz, rootContext(true));
+    }
+    public <T> T instantiateEntity(Class<?> clazz, MockingContext context){
+        if(!tracer.isEnabled() || context.isActive())
+            return instantiate(clazz, context);
+        try {
+            return instantiate(clazz, context);
+        } catch (RuntimeException e){
+            tracer.dump(e);
+            throw e;
+        }
+    }
+    //builds a root graph outside of any transaction, for whoever drains the context to write it
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public <T> T instantiateDeferredEntity(Class<?> clazz, MockingContext context){
+        return instantiateEntity(clazz, context.deferPersistence(true));
     }
     public <T> T instantiateEntity(String clazzName) {
         return instantiateEntity(reflectionCache.getEntitiesCache().get(clazzName).getClazz());
     }
     public <T> T instantiateTransientEntity(Class<?> clazz){
-        return instantiateEntity(clazz, new HashMap<String, Object>(){{
-            put(INSTANTIATION_STACK, new Stack<>());
-            put(NO_PERSIST, true);
-        }});
+        return instantiateEntity(clazz, rootContext(false));
     }
-    public Object mockFieldValue(Class<?> clazz, String fieldName){
-        Object instance = reflectionCache.getEntitiesCache().get(clazz.getSimpleName()).getDefaultInstance();
-        Collection<Field> fields = getClassFields(instance.getClass());
-        Field field = null;
-        for (Field aField : fields){
-            if(aField.getName().equals(fieldName)) {
-                field = aField;
-                break;
-            }
+    //count roots generated in one go, sharing one plan and context and persisted together as a batch
+    public <T> List<T> instantiateEntities(Class<?> clazz, int count){
+        return instantiateEntities(clazz, count, rootContext(true));
+    }
+    //as above, persisted in batches of the given size rather than the configured one
+    public <T> List<T> instantiateEntities(Class<?> clazz, int count, int batchSize){
+        return instantiateEntities(clazz, count, rootContext(true), batchSize);
+    }
+    public <T> List<T> instantiateEntities(Class<?> clazz, int count, MockingContext context){
+        return instantiateEntities(clazz, count, context, bulkBatchSize(count));
+    }
+    public <T> List<T> instantiateEntities(Class<?> clazz, int count, MockingContext context, int batchSize){
+        if(context.isActive())
+            throw new IllegalArgumentException("Cannot instantiate entities in bulk within an active mocking context");
+        final MockingPlan plan = mockingPlanFactory.mockingPlan(clazz);
+        final List<T> instances = new ArrayList<>(count);
+        try {
+            entityPersister.batch(() -> {
+                for (int i = 0; i < count; i++) instances.add(create(plan, context));
+            }, batchSize);
+        } catch (RuntimeException e){
+            tracer.dump(e);
+            throw e;
         }
-        if(field == null)
+        return instances;
+    }
+    //a call asking for many roots is batched even when single saves are configured, a larger configured size is kept
+    private int bulkBatchSize(int count){
+        return Math.max(entityPersister.batchSize(), Math.min(count, MAX_BULK_BATCH_SIZE));
+    }
+    public <T> List<T> instantiateEntities(String clazzName, int count){
+        return instantiateEntities(reflectionCache.getEntitiesCache().get(clazzName).getClazz(), count);
+    }
+    public List<Object> instantiateEntityIds(Class<?> clazz, int count){
+        List<Object> instances = instantiateEntities(clazz, count);
+        List<Object> ids = new ArrayList<>(instances.size());
+        for (Object instance : instances) ids.add(idRegistry.idOf(instance));
+        return ids;
+    }
+    public Object mockFieldValue(Class<?> clazz, String fieldName){
+        return fieldValueSource(clazz, fieldName).get();
+    }
+    public List<Object> mockFieldValues(Class<?> clazz, String fieldName, int count){
+        Supplier<Object> source = fieldValueSource(clazz, fieldName);
+        List<Object> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) values.add(source.get());
+        return values;
+    }
+    //unbounded, values are generated as the stream is consumed
+    public Stream<Object> mockFieldValueStream(Class<?> clazz, String fieldName){
+        return Stream.generate(fieldValueSource(clazz, fieldName));
+    }
+    public int[] mockIntValues(Class<?> clazz, String fieldName, int count){
+        Supplier<Object> source = typedFieldValueSource(clazz, fieldName, int.class, Integer.class);
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) values[i] = ((Number) source.get()).intValue();
+        return values;
+    }
+    public long[] mockLongValues(Class<?> clazz, String fieldName, int count){
+        Supplier<Object> source = typedFieldValueSource(clazz, fieldName, long.class, Long.class);
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) values[i] = ((Number) source.get()).longValue();
+        return values;
+    }
+    public double[] mockDoubleValues(Class<?> clazz, String fieldName, int count){
+        Supplier<Object> source = typedFieldValueSource(clazz, fieldName, double.class, Double.class);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) values[i] = ((Number) source.get()).doubleValue();
+        return values;
+    }
+    public boolean[] mockBooleanValues(Class<?> clazz, String fieldName, int count){
+        Supplier<Object> source = typedFieldValueSource(clazz, fieldName, boolean.class, Boolean.class);
+        boolean[] values = new boolean[count];
+        for (int i = 0; i < count; i++) values[i] = (Boolean) source.get();
+        return values;
+    }
+
+    private Supplier<Object> typedFieldValueSource(Class<?> clazz, String fieldName, Class<?> primitiveType, Class<?> boxedType){
+        Class<?> fieldType = field(clazz, fieldName).getType();
+        if(!fieldType.equals(primitiveType) && !fieldType.equals(boxedType))
             throw new IllegalArgumentException(
-                    "Cannot find field by name " + fieldName + " in " + instance.getClass().getSimpleName());
-        assignFieldValue(field, instance, new HashMap<String, Object>(){{
-            put(INSTANTIATION_STACK, new Stack<>());
-            put(NO_PERSIST, true);
-        }});
-        return reflectionCache
-                .getEntitiesCache()
-                .get(instance.getClass().getSimpleName())
-                .invokeGetter(instance, field.getName());
+                    clazz.getSimpleName() + "." + fieldName + " is not of type " + primitiveType.getSimpleName());
+        return fieldValueSource(clazz, fieldName);
+    }
+
+    //resolved once per field, plain values come straight from the plan while relationships need a parent to hang off
+    private Supplier<Object> fieldValueSource(Class<?> clazz, String fieldName){
+        final Map.Entry<Class<?>, String> key = immutableEntry(clazz, fieldName);
+        Supplier<Object> source = fieldValueSources.get(key);
+        if(source != null) return source;
+        final FieldAccessor accessor = classAccessorFactory.fieldAccessor(field(clazz, fieldName));
+        final MockingPlan plan = mockingPlanFactory.mockingPlan(clazz);
+        final PlannedField plannedField = plan.field(fieldName);
+        if(plannedField != null && plannedField.getKind() == PlannedField.Kind.VALUE)
+            source = plannedField::nextValue;
+        else source = () -> {
+            Object parent = plan.newInstance();
+            if(plannedField != null) assignFieldValue(plannedField, parent, rootContext(false));
+            return accessor.get(parent);
+        };
+        fieldValueSources.put(key, source);
+        return source;
+    }
+
+    private Field field(Class<?> clazz, String fieldName){
+        for (Field field : getClassFields(clazz))
+            if(field.getName().equals(fieldName)) return field;
+        throw new IllegalArgumentException("Cannot find field by name " + fieldName + " in " + clazz.getSimpleName());
     }
     public<T> T mockUpdate(Object toMockUpdate){
-        Class<?> clazz = toMockUpdate.getClass();
-        Object other = instantiateTransientEntity(toMockUpdate.getClass());
-        getClassFields(clazz).forEach(field -> {
-            final FieldMetaInfo fieldMetaInfo = fieldMetaInfoFactory.fieldMetaInfo(toMockUpdate, field);
-            if(fieldMetaInfo.isUpdatable())
-                setField(toMockUpdate, field,
-                                 reflectionCache.getEntitiesCache().get(clazz.getSimpleName())
-                                .invokeGetter(other, field.getName()));
-        });
+        return mockUpdate(toMockUpdate, new MockUpdateOptions());
+    }
+    public<T> T mockUpdate(Object toMockUpdate, MockUpdateOptions options){
+        MockingPlan plan = mockingPlanFactory.mockingPlan(toMockUpdate.getClass());
+        applyUpdate(toMockUpdate, plan, updatableFields(plan, options));
         return (T) toMockUpdate;
     }
+    public<T> List<T> mockUpdates(T toMockUpdate, MockUpdateOptions options){
+        return mockUpdates(toMockUpdate, options.getQuantity(), options);
+    }
+    //count copies of toMockUpdate, each with freshly generated values for the updatable fields
+    public<T> List<T> mockUpdates(T toMockUpdate, int count, MockUpdateOptions options){
+        MockingPlan plan = mockingPlanFactory.mockingPlan(toMockUpdate.getClass());
+        List<PlannedField> updatableFields = updatableFields(plan, options);
+        List<T> payloads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            T payload = (T) plan.newInstance();
+            copyFields(toMockUpdate, payload);
+            applyUpdate(payload, plan, updatableFields);
+            payloads.add(payload);
+        }
+        return payloads;
+    }
 
-    @SuppressWarnings("rawtypes")
-    private  <T> T instantiateEntity(Class<?> clazz, Map<String, Object> args){
-        Stack instantiationStack = (Stack)args.get(INSTANTIATION_STACK);
-        if(instantiationStack.contains(clazz))
-            return preExistingInstance(clazz, args);
-        final String indentation = indentation(instantiationStack);
-        log(indentation + "Instantiating " + clazz.getSimpleName() + "...");
-        Object instance = genDefaultInstance(clazz);
-        instantiationStack.push(clazz);
-        getClassFields(clazz).forEach(field -> assignFieldValue(field, instance, args));
-        instantiationStack.pop();
-        if (args.get(NO_PERSIST) == null) {
-            log(indentation + "Persisting " + instance.toString().replaceAll("[\n]", " "));
-            dataManager.setType(clazz);
-            return (T) dataManager.save(instance);
-        } else {
-            log(indentation + "Returning transient instance of " + clazz.getSimpleName());
-            return (T) instance;
+    private List<PlannedField> updatableFields(MockingPlan plan, MockUpdateOptions options){
+        for (String fieldName : options.getFieldNames())
+            if(getClassFields(plan.getEntityType()).stream().noneMatch(field -> field.getName().equals(fieldName)))
+                throw new IllegalArgumentException(
+                        "Cannot find field by name " + fieldName + " in " + plan.getEntityType().getSimpleName());
+        List<PlannedField> updatableFields = new ArrayList<>();
+        for (PlannedField plannedField : plan.getFields()) {
+            if(plannedField.getKind() == PlannedField.Kind.EMPTY_COLLECTION) continue;
+            if(!plannedField.getFieldMetaInfo().isUpdatable()) continue;
+            if(!options.includes(plannedField.getField().getName())) continue;
+            if(options.isSkipRelationships() && plannedField.isRelationship()) continue;
+            updatableFields.add(plannedField);
         }
+        return updatableFields;
     }
 
-    private void assignFieldValue(Field field, Object parent, Map<String, Object> args) {
-        FieldMetaInfo fieldMetaInfo = fieldMetaInfoFactory.fieldMetaInfo(parent, field);
-        if(!fieldMetaInfo.isToInstantiate()) return;
-        switch (fieldMetaInfo.getMockDataSource()){
-            case DEFAULT: autoAssign(field, parent, fieldMetaInfo, args);
-                break;
-            case KEYWORD: assignFromKeyword(field, parent);
-                break;
-            case CUSTOM_KEYWORD: assignFromCustomKeyword(field, parent);
-                break;
-            case OF_SET: assignFromOfSet(field, parent);
-                break;
-            case MIN_MAX_RANGE: assignFromMinMaxRange(field, parent);
-                break;
-            case MOCK_FACTORY: assignFromMockFactory(field, parent);
-                break;
+    private void applyUpdate(Object target, MockingPlan plan, List<PlannedField> updatableFields){
+        MockingContext context = rootContext(false);
+        context.enter(plan.getEntityType());
+        try {
+            for (PlannedField plannedField : updatableFields) assignFieldValue(plannedField, target, context);
+        } finally {
+            context.exit(plan.getEntityType());
         }
     }
-    private void autoAssign(Field field, Object parent, FieldMetaInfo fieldMetaInfo, Map<String, Object> args) {
-        switch (fieldMetaInfo.getFieldReferenceType()){
-            case SINGLE_PRIMITIVE: autoAssignSinglePrimitive(field, parent);
-                break;
-            case PRIMITIVE_COLLECTION: autoAssignPrimitivesCollection(field, parent);
+
+    private void copyFields(Object source, Object target){
+        for (Field field : getClassFields(source.getClass())) {
+            if(Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) continue;
+            FieldAccessor accessor = classAccessorFactory.fieldAccessor(field);
+            accessor.set(target, copyOf(field, accessor.get(source)));
+        }
+    }
+
+    //collections, maps and arrays get a container of their own, the elements are shared
+    private Object copyOf(Field field, Object value){
+        if(value instanceof Collection){
+            Collection<Object> copy = value instanceof SortedSet ? new TreeSet<>(((SortedSet<Object>) value).comparator())
+                    : value instanceof Set ? new LinkedHashSet<>() : new ArrayList<>();
+            if(!field.getType().isInstance(copy)) copy = (Collection<Object>) classAccessorFactory.classAccessor(value.getClass()).newInstance();
+            copy.addAll((Collection<?>) value);
+            return copy;
+        }
+        if(value instanceof Map){
+            Map<Object, Object> copy = value instanceof SortedMap
+                    ? new TreeMap<>(((SortedMap<Object, Object>) value).comparator()) : new LinkedHashMap<>();
+            if(!field.getType().isInstance(copy)) copy = (Map<Object, Object>) classAccessorFactory.classAccessor(value.getClass()).newInstance();
+            copy.putAll((Map<?, ?>) value);
+            return copy;
+        }
+        if(value != null && value.getClass().isArray()){
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+        return value;
+    }
+
+    //the thread's context is reused unless it's already in use, e.g. by a mock factory calling back in here
+    private MockingContext rootContext(boolean persist){
+        MockingContext context = contexts.get();
+        if(context.isActive()) context = new MockingContext();
+        return context.reset().persist(persist);
+    }
+
+    private <T> T instantiate(Class<?> clazz, MockingContext context){
+        if(context.isOnPath(clazz))
+            return preExistingInstance(clazz, context);
+        //a budget used up by this transaction's own rows only makes the type reusable once it commits
+        if(!context.isRoot() && context.isPersist() && (referenceReusePolicy.isReusable(clazz) || budget.isExhausted(clazz))){
+            T existing = preExistingInstance(clazz, context);
+            //a new row would go past a hard limit, the relationship is left unset unless it's required
+            if(existing != null || budget.isExhausted(clazz)) return existing;
+        }
+        return create(mockingPlanFactory.mockingPlan(clazz), context);
+    }
+
+    private <T> T create(MockingPlan plan, MockingContext context){
+        final Class<?> clazz = plan.getEntityType();
+        final boolean isRoot = context.isRoot();
+        final long start = metrics.start();
+        final long persistenceMark = metrics.persistenceMark();
+        final long entityMark = metrics.entityMark();
+        Object instance = plan.newInstance();
+        context.enter(clazz);
+        try {
+            if(isParallel(context)) assignFieldValuesInParallel(plan, instance, context);
+            else for (PlannedField plannedField : plan.getFields()) assignFieldValue(plannedField, instance, context);
+        } finally {
+            context.exit(clazz);
+        }
+        T result = (T) instance;
+        if(context.isPersist()){
+            if(context.isDeferring()) context.defer(clazz, instance);
+            else {
+                for (Map.Entry<Class<?>, Object> deferred : context.drainDeferred())
+                    entityPersister.persist(deferred.getKey(), deferred.getValue());
+                result = entityPersister.persist(clazz, instance);
+            }
+        }
+        tracer.created(clazz, context.getDepth(), context.isPersist());
+        metrics.recordEntity(clazz, start, entityMark);
+        if(isRoot) metrics.recordGeneration(start, persistenceMark);
+        return result;
+    }
+
+    private boolean isParallel(MockingContext context){
+        return generationPool != null && context.getDepth() <= parallelDepth;
+    }
+
+    //relationships are generated concurrently on forks of the context, plain values inline
+    private void assignFieldValuesInParallel(MockingPlan plan, Object instance, MockingContext context){
+        List<Callable<MockingContext>> relationships = new ArrayList<>();
+        for (PlannedField plannedField : plan.getFields()) {
+            PlannedField.Kind kind = plannedField.getKind();
+            if(kind != PlannedField.Kind.SINGLE_FOREIGN_KEY && kind != PlannedField.Kind.FOREIGN_KEY_COLLECTION){
+                assignFieldValue(plannedField, instance, context);
+                continue;
+            }
+            final MockingContext fork = context.fork();
+            relationships.add(() -> {
+                assignFieldValue(plannedField, instance, fork);
+                return fork;
+            });
+        }
+        for (MockingContext fork : runForked(relationships, context)) context.absorb(fork);
+    }
+
+    private <T> List<T> runForked(List<Callable<T>> work, MockingContext context){
+        List<ForkJoinTask<T>> tasks = new ArrayList<>(work.size());
+        for (Callable<T> callable : work) tasks.add(ForkJoinTask.adapt(callable));
+        if(ForkJoinTask.getPool() == generationPool) ForkJoinTask.invokeAll(tasks);
+        else {
+            tasks.forEach(generationPool::execute);
+            //the forks may need this thread's transaction in the meantime
+            context.runOwnerTasksUntil(() -> tasks.stream().allMatch(ForkJoinTask::isDone));
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<T> task : tasks) results.add(task.join());
+        return results;
+    }
+
+    private void assignFieldValue(PlannedField plannedField, Object parent, MockingContext context) {
+        final FieldMetaInfo fieldMetaInfo = plannedField.getFieldMetaInfo();
+        final Field field = plannedField.getField();
+        final long start = metrics.start();
+        final long entityMark = metrics.entityMark();
+        switch (plannedField.getKind()){
+            case EMPTY_COLLECTION: plannedField.set(parent, plannedField.nextValue());
+                return;
+            case VALUE: plannedField.set(parent, plannedField.nextValue());
                 break;
-            case SINGLE_FOREIGN_KEY: autoAssignSingleForeignKey(field, parent, fieldMetaInfo, args);
+            case SINGLE_FOREIGN_KEY: autoAssignSingleForeignKey(field, parent, fieldMetaInfo, context);
                 break;
-            case FOREIGN_KEY_COLLECTION: autoAssignForeignKeyCollection(field, parent, fieldMetaInfo, args);
+            case FOREIGN_KEY_COLLECTION: autoAssignForeignKeyCollection(plannedField, parent, context);
                 break;
         }
+        if(fieldMetaInfo.getMockDataSource() == MockDataSource.DEFAULT)
+            metrics.recordReference(fieldMetaInfo.getFieldReferenceType(), start, entityMark);
+        metrics.recordStrategy(fieldMetaInfo.getMockDataSource(), start, entityMark);
     }
-    private void autoAssignForeignKeyCollection(Field field, Object parent, FieldMetaInfo fieldMetaInfo, Map<String, Object> args) {
-        if(args.get(NO_PERSIST) != null && fieldMetaInfo.isOptional()) return;
+    private void autoAssignForeignKeyCollection(PlannedField plannedField, Object parent, MockingContext context) {
+        final Field field = plannedField.getField();
+        final FieldMetaInfo fieldMetaInfo = plannedField.getFieldMetaInfo();
+        if(!context.isPersist() && fieldMetaInfo.isOptional()) return;
         Class<?> collectibleType = collectibleType(field, reflectionCache);
+        final long start = metrics.start();
         Collection<Object> values = collectionInstantiator.instantiateCollection(field.getType(), collectibleType);
-        Map<Object, Object> valuesMap = new HashMap<>();
-        for(int i = 0; i < ThreadLocalRandom.current().nextInt(5, 10); i++){
-            final Object value = instantiateEntity(collectibleType, args);
-            if(value != null)
-                valuesMap.putIfAbsent(getId(value, reflectionCache), value);
+        metrics.recordCollectionInstantiation(start);
+        Map<Object, Object> valuesMap = new LinkedHashMap<>();
+        //values still sitting in a persistence batch have no id yet
+        Set<Object> unsavedValues = Collections.newSetFromMap(new IdentityHashMap<>());
+        final int fanOut = fanOut(plannedField, context).sample(context.random());
+        for(Object value : collectionElements(collectibleType, fanOut, context)){
+            if(value == null) continue;
+            Object id = idRegistry.idOf(value);
+            if(id != null) valuesMap.putIfAbsent(id, value);
+            else unsavedValues.add(value);
         }
         removeAnyCircularSelfReference(valuesMap, parent);
         values.addAll(valuesMap.values());
-        if(values.isEmpty() && !fieldMetaInfo.isOptional())
-            throwGeneralCircularReferenceException(field, parent);
+        values.addAll(unsavedValues);
+        //an empty collection is only a failure if some entities were asked for
+        if(values.isEmpty() && fanOut > 0 && !fieldMetaInfo.isOptional())
+            throwUnsatisfiedRelationship(field, collectibleType, parent);
         setField(parent, field, values);
     }
 
+    private List<Object> collectionElements(Class<?> collectibleType, int fanOut, MockingContext context){
+        List<Object> elements = new ArrayList<>(fanOut);
+        if(fanOut < 2 || !isParallel(context)){
+            for (int i = 0; i < fanOut; i++) elements.add(instantiate(collectibleType, context));
+            return elements;
+        }
+        List<MockingContext> forks = new ArrayList<>(fanOut);
+        List<Callable<Object>> work = new ArrayList<>(fanOut);
+        for (int i = 0; i < fanOut; i++) {
+            final MockingContext fork = context.fork();
+            forks.add(fork);
+            work.add(() -> instantiate(collectibleType, fork));
+        }
+        elements.addAll(runForked(work, context));
+        forks.forEach(context::absorb);
+        return elements;
+    }
+
+    private FanOutPolicy fanOut(PlannedField plannedField, MockingContext context){
+        if(plannedField.getFanOut() != null) return plannedField.getFanOut();
+        return context.getFanOut() != null ? context.getFanOut() : defaultFanOut;
+    }
+
     private void removeAnyCircularSelfReference(Map<Object, Object> valuesMap, Object parent) {
         Object parentId = getId(parent, reflectionCache);
-        if(valuesMap.get(parentId) != null)
+        if(parentId != null && valuesMap.get(parentId) != null)
             valuesMap.remove(parentId);
     }
 
-    private void autoAssignSingleForeignKey(Field field, Object parent, FieldMetaInfo fieldMetaInfo,Map<String, Object> args) {
-        if(args.get(NO_PERSIST) != null && fieldMetaInfo.isOptional()) return;
-        final Object value = instantiateEntity(field.getType(), args);
+    private void autoAssignSingleForeignKey(Field field, Object parent, FieldMetaInfo fieldMetaInfo, MockingContext context) {
+        if(!context.isPersist() && fieldMetaInfo.isOptional()) return;
+        final Object value = instantiate(field.getType(), context);
         if(value == null && !fieldMetaInfo.isOptional())
-            throwGeneralCircularReferenceException(field, parent);
+            throwUnsatisfiedRelationship(field, field.getType(), parent);
         if(isCircularSelfReference(parent, value))
-            handleSingleForeignKeyCircularSelfReference(field, fieldMetaInfo, value, parent);
+            handleSingleForeignKeyCircularSelfReference(field, fieldMetaInfo, parent, context);
         else setField(parent, field, value);
     }
 
-    private void handleSingleForeignKeyCircularSelfReference(Field field, FieldMetaInfo fieldMetaInfo, Object value, Object parent) {
-        dataManager.setType(field.getType());
-        if (dataManager.count() <= 1) {
+    private void throwUnsatisfiedRelationship(Field field, Class<?> type, Object parent){
+        if(budget.isExhausted(type))
+            throw new IllegalStateException("Row budget exhausted for " + type.getSimpleName() +
+                    " and there are no existing rows to link " + parent.getClass().getSimpleName() + "." + field.getName() + " to");
+        throwGeneralCircularReferenceException(field, parent);
+    }
+
+    private void handleSingleForeignKeyCircularSelfReference(Field field, FieldMetaInfo fieldMetaInfo, Object parent, MockingContext context) {
+        final Object parentId = getId(parent, reflectionCache);
+        Object other = context.onOwnerThread(() -> existingInstance(field.getType(), parentId, context));
+        if (other == null) {
             if (!fieldMetaInfo.isOptional())
                 throwGeneralCircularReferenceException(field, parent);
             else return;
         }
-        //else
-        Object parentId = getId(parent, reflectionCache);
-        List<Object> allValues =
-                                (List<Object>) dataManager.findAll().stream()
-                                .filter(_value -> !getId(_value, reflectionCache).equals(parentId))
-                                .collect(Collectors.toList());
-        if(allValues.size() == 1) setField(parent, field, allValues.get(0));
-        else setField(parent, field, randomFrom(allValues));
+        setField(parent, field, other);
     }
 
     private boolean isCircularSelfReference(Object parent, Object value){
-        return  value.getClass().equals(parent.getClass()) &&
-                getId(value, reflectionCache).equals(getId(parent, reflectionCache));
+        //existing rows may come back as reference proxies, which subclass the entity type
+        if(value == null || !parent.getClass().isInstance(value)) return false;
+        Object valueId = idRegistry.idOf(value);
+        return value == parent || (valueId != null && valueId.equals(getId(parent, reflectionCache)));
     }
 
-    private void autoAssignPrimitivesCollection(Field field, Object parent) {
-
-        switch (primitiveCollectionType(field)){
-            case "String": setField(parent, field, testData.collectionOfStrings(field.getType()));
-                break;
-            case "Double": setField(parent, field, testData.collectionOfDoubles(field.getType()));
-                break;
-            case "Long" : setField(parent, field, testData.collectionOfLongs(field.getType()));
-                break;
-            case "Integer" : setField(parent, field, testData.collectionOfIntegers(field.getType()));
-                break;
-            case "Boolean" :setField(parent, field, testData.collectionOfBooleans(field.getType()));
-                break;
-            case "LocalDateTime" : setField(parent, field, testData.collectionOfLocalDateTimes(field.getType()));
-                break;
-            case "LocalDate" : setField(parent, field, testData.collectionOfLocalDates(field.getType()));
-                break;
-            case "URL" : setField(parent, field, testData.collectionOfUrls(field.getType()));
-        }
+    private void setField(Object parent, Field field, Object value) {
+        classAccessorFactory.fieldAccessor(field).set(parent, value);
     }
-    private void autoAssignSinglePrimitive(Field field, Object parent) {
-        switch (field.getType().getSimpleName()){
-            case "String": setField(parent, field, testData.dummySentence());
-                break;
-            case "Double": setField(parent, field, testData.aDouble());
-                break;
-            case "Long" : setField(parent, field, ThreadLocalRandom.current().nextLong());
-                break;
-            case "Integer" : setField(parent, field, ThreadLocalRandom.current().nextInt());
-                break;
-            case "Boolean" :setField(parent, field, ThreadLocalRandom.current().nextBoolean());
-                break;
-            case "LocalDateTime" : setField(parent, field, testData.aLocalDateTime());
-                break;
-            case "LocalDate" : setField(parent, field, testData.aLocalDate());
-                break;
-            case "URL" : setField(parent, field, toUrlType(randomFrom(testData.getWebsites())));
-        }
+    private <T> T preExistingInstance(Class<?> clazz, MockingContext context) {
+        final int depth = context.getDepth();
+        Object preExistingInstance = context.onOwnerThread(() -> existingInstance(clazz, null, context));
+        if(preExistingInstance == null) tracer.notFound(clazz, depth);
+        else tracer.reused(clazz, depth);
+        return (T) preExistingInstance;
     }
 
-    private void assignFromKeyword(Field field, Object parent) {
-        switch (field.getAnnotation(MockData.class).keyword()){
-            case PAST_DATE: setField(parent, field, testData.pastDate());
-                break;
-            case FUTURE_DATE: setField(parent, field, testData.futureDate());
-                break;
-            case NAME: setField(parent, field, randomFrom(testData.getFirstNames()));
-                break;
-            case ADDRESS: setField(parent, field, randomFrom(testData.getAddresses()));
-                break;
-            case CITY: setField(parent, field, randomFrom(testData.getCities()));
-                break;
-            case STATE: setField(parent, field, randomFrom(testData.getStateOrProvinces()));
-                break;
-            case COUNTRY: setField(parent, field, randomFrom(testData.getCountries()));
-                break;
-            case ZIP: setField(parent, field, randomFrom(testData.getZipCodes()));
-                break;
-            case PHONE: setField(parent, field, randomFrom(testData.getPhone1s()));
-                break;
-            case EMAIL: setField(parent, field, randomFrom(testData.getEmails()));
-                break;
-            case PARAGRAPH: setField(parent, field, testData.dummyParagraph());
-                break;
-            case COMPANY: setField(parent, field, randomFrom(testData.getCompanies()));
-                break;
-            case URL: setField(parent, field, randomFrom(testData.getWebsites()));
-                break;
-            case PASSWORD: setField(parent, field, testData.password());
-                break;
-        }
-    }
-    private void assignFromCustomKeyword(Field field, Object parent) {
-        String customKeyword = field.getAnnotation(MockData.class).customKeyword();
-        List<Object> dataset = getCustomKeyword(customKeyword.toUpperCase());
-        setField(parent, field, randomFrom(dataset));
-    }
-    private void assignFromOfSet(Field field, Object parent) {
-        MockData mockData = field.getAnnotation(MockData.class);
-        setField(parent, field, randomFrom(Arrays.asList(mockData.ofSet())));
-    }
-    private void assignFromMinMaxRange(Field field, Object parent) {
-        MockData mockData = field.getAnnotation(MockData.class);
-        switch (field.getType().getSimpleName()){
-            case "Double": {
-                setField(parent, field, ThreadLocalRandom.current().nextDouble(mockData.min(), mockData.max()));
-            } break;
-            case "Float" : {
-                setField(parent, field, (float)ThreadLocalRandom.current().nextDouble(mockData.min(), mockData.max()));
-            } break;
-            case "Long"  : {
-                setField(parent, field, ThreadLocalRandom.current().nextLong(mockData.min(), mockData.max()));
-            } break;
-            case "Integer": {
-                setField(parent, field, ThreadLocalRandom.current().nextInt(mockData.min(), mockData.max()));
-            } break;
-            case "Short" : {
-                setField(parent, field, (short)ThreadLocalRandom.current().nextInt(mockData.min(), mockData.max()));
-            } break;
-            case "BigDecimal" : {
-                setField(parent, field, generateRandomBigDecimalFromRange(mockData.min(), mockData.max()));
-            } break;
-        }
-    }
-    private void assignFromMockFactory(Field field, Object parent) {
-        Class<?> mockFactoryType = field.getAnnotation(MockData.class).mockFactoryBean();
-        MockFactory mockFactory = getMockFactory(mockFactoryType.getSimpleName());
-        setField(parent, field, mockFactory.value());
-    }
-    private void setField(Object parent, Field field, Object value) {
-        try{
-            field.setAccessible(true);
-            field.set(parent, value);
-        }catch (Exception e){
-            e.printStackTrace();
-throw new RuntimeException(e);
-        }
-    }
-    private final static Logger logger = Logger.getLogger(EntityMocker.class);
-    private void log(String s) {
-        logger.log(Level.DEBUG, s);
-    }
-    private String indentation(Stack instantiationStack){
-        StringBuilder stringBuilder = new StringBuilder("|\n|");
-        for(int i = 0; i < instantiationStack.size(); i++) stringBuilder.append("-");
-        return stringBuilder.toString();
-    }
-    private <T> T preExistingInstance(Class<?> clazz, Map<String, Object> args) {
-        dataManager.setType(clazz);
-        List<Object> preExistingInstances = dataManager.findAll();
-        String indentation = indentation((Stack)args.get(INSTANTIATION_STACK));
-        if(preExistingInstances.isEmpty()) {
-            log( indentation + "Cannot find previous instance of " + clazz.getSimpleName() + " to assign, assigning null value.");
-            return null;
+    //needs the persistence context or export session of the thread that owns the mocking call
+    private Object existingInstance(Class<?> clazz, Object excludedId, MockingContext context){
+        if(entityPersister.isExporting())
+            return entityPersister.exportedReference(clazz, excludedId);
+        final long start = metrics.start();
+        Object existing;
+        if(context.isPersistenceDeferred()) existing = idRegistry.randomStandIn(clazz, excludedId);
+        else {
+            entityPersister.flush();
+            existing = idRegistry.randomInstance(clazz, excludedId);
         }
-        log(indentation + "Assigning previous instance of " + clazz.getSimpleName());
-        if(preExistingInstances.size() == 1) return (T) preExistingInstances.get(0);
-        return (T) randomFrom(preExistingInstances);
+        metrics.recordExistingLookup(start);
+        return existing;
     }
 }
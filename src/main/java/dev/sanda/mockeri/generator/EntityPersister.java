@@ -0,0 +1,229 @@
+package dev.sanda.mockeri.generator;
+
+import com.google.common.util.concurrent.RateLimiter;
+import dev.sanda.mockeri.export.ExportSession;
+import dev.sanda.mockeri.metrics.PopulationMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToOne;
+import javax.persistence.PersistenceContext;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static dev.sanda.datafi.reflection.ReflectionCache.getClassFields;
+
+@Component
+@SuppressWarnings("unchecked")
+public class EntityPersister {
+    @Value("${mockeri.persistence.batch-size:1}")
+    private String batchSize;
+    @Value("${mockeri.population.rows-per-second:0}")
+    private String rowsPerSecond;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcEntityWriter jdbcEntityWriter;
+    @Autowired
+    private PopulationMetrics metrics;
+    @Autowired
+    private IdRegistry idRegistry;
+    @Autowired
+    private PopulationBudget budget;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ThreadLocal<List<Object>> buffer = new ThreadLocal<>();
+    private final ThreadLocal<Integer> flushSize = new ThreadLocal<>();
+    private final ThreadLocal<ExportSession> exportSession = new ThreadLocal<>();
+    private final Map<Class<?>, Integer> flushRanks = new ConcurrentHashMap<>();
+    private RateLimiter throttle;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    private void init(){
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        double permitsPerSecond = Double.parseDouble(rowsPerSecond);
+        if(permitsPerSecond > 0) throttle = RateLimiter.create(permitsPerSecond);
+    }
+
+    public <T> T persist(Class<?> clazz, Object instance){
+        ExportSession export = exportSession.get();
+        if(export != null){
+            export.write(instance);
+            budget.recordRows(clazz, 1);
+            return (T) instance;
+        }
+        List<Object> pending = buffer.get();
+        if(pending == null){
+            if(throttle != null) throttle.acquire();
+            final long start = metrics.start();
+            try {
+                if(jdbcEntityWriter.supports(clazz)){
+                    writeJdbc(clazz, Collections.singletonList(instance));
+                    idRegistry.registerAll(clazz, Collections.singletonList(instance));
+                    budget.recordRows(clazz, 1);
+                    return (T) instance;
+                }
+                List<Object> saved = persistAll(Collections.singletonList(instance));
+                idRegistry.registerAll(clazz, saved);
+                budget.recordRows(clazz, 1);
+                return (T) saved.get(0);
+            } finally {
+                metrics.recordPersistence(start);
+            }
+        }
+        pending.add(instance);
+        if(pending.size() >= flushSize.get()) flush();
+        return (T) instance;
+    }
+
+    //buffers everything persisted on the current thread while work runs, and flushes it in chunks
+    public void batch(Runnable work){
+        batch(work, batchSize());
+    }
+
+    //as above, with the given number of entities per flush instead of the configured batch size
+    public void batch(Runnable work, int size){
+        if(buffer.get() != null || size <= 1){
+            work.run();
+            return;
+        }
+        //one persistence context for the whole batch, a cascade can reach entities written by an earlier flush
+        if(!TransactionSynchronizationManager.isActualTransactionActive()){
+            transactionTemplate.execute(status -> {
+                batch(work, size);
+                return null;
+            });
+            return;
+        }
+        buffer.set(new ArrayList<>());
+        flushSize.set(size);
+        try {
+            work.run();
+            flush();
+        } finally {
+            buffer.remove();
+            flushSize.remove();
+        }
+    }
+
+    public void export(ExportSession session, Runnable work){
+        exportSession.set(session);
+        try {
+            work.run();
+        } finally {
+            exportSession.remove();
+        }
+    }
+
+    public boolean isExporting(){
+        return exportSession.get() != null;
+    }
+
+    public Object exportedReference(Class<?> clazz, Object excludedId){
+        return exportSession.get().reference(clazz, excludedId);
+    }
+
+    public void flush(){
+        List<Object> pending = buffer.get();
+        if(pending == null || pending.isEmpty()) return;
+        if(!TransactionSynchronizationManager.isActualTransactionActive())
+            throw new IllegalStateException("Batched entities can only be flushed within a transaction");
+        //permits are taken per row as it's written, a buffered entity isn't a row yet
+        if(throttle != null) throttle.acquire(pending.size());
+        final long flushStart = metrics.start();
+        List<Object> ordered = new ArrayList<>(pending);
+        pending.clear();
+        //referenced types first, stable within a rank so creation order is kept
+        ordered.sort(Comparator.comparingInt(instance -> flushRank(instance.getClass())));
+        int start = 0;
+        while (start < ordered.size()){
+            Class<?> type = ordered.get(start).getClass();
+            int end = start + 1;
+            while (end < ordered.size() && ordered.get(end).getClass().equals(type)) end++;
+            List<Object> run = new ArrayList<>(ordered.subList(start, end));
+            if(jdbcEntityWriter.supports(type)) writeJdbc(type, run);
+            else persistAll(run);
+            idRegistry.registerAll(type, run);
+            budget.recordRows(type, run.size());
+            start = end;
+        }
+        metrics.recordPersistence(flushStart);
+    }
+
+    //straight to the entity manager, a shared DataManager is bound to one type at a time and isn't safe across worker threads
+    private List<Object> persistAll(List<Object> instances){
+        if(TransactionSynchronizationManager.isActualTransactionActive())
+            return saveAll(instances);
+        return transactionTemplate.execute(status -> saveAll(instances));
+    }
+
+    //as DataManager.save did, new instances are persisted and ones that already carry an id are merged into their row
+    private List<Object> saveAll(List<Object> instances){
+        List<Object> saved = new ArrayList<>(instances.size());
+        for (Object instance : instances) {
+            if(isNew(instance)) entityManager.persist(instance);
+            else if(!entityManager.contains(instance)) instance = entityManager.merge(instance);
+            saved.add(instance);
+        }
+        return saved;
+    }
+
+    private boolean isNew(Object instance){
+        Object id = idRegistry.idOf(instance);
+        if(id == null) return true;
+        //a primitive id can't be null, 0 stands for unset
+        return id instanceof Number && ((Number) id).longValue() == 0 && idRegistry.hasPrimitiveId(instance.getClass());
+    }
+
+    private void writeJdbc(Class<?> clazz, List<Object> instances){
+        //rows referenced by this run may still be pending inside the persistence context
+        if(TransactionSynchronizationManager.isActualTransactionActive())
+            entityManager.flush();
+        jdbcEntityWriter.write(clazz, instances);
+    }
+
+    public boolean isBatching(){
+        return buffer.get() != null;
+    }
+
+    public int batchSize(){
+        return Integer.parseInt(batchSize);
+    }
+
+    private int flushRank(Class<?> clazz){
+        Integer rank = flushRanks.get(clazz);
+        if(rank == null){
+            rank = flushRank(clazz, new HashSet<>());
+            flushRanks.put(clazz, rank);
+        }
+        return rank;
+    }
+
+    private int flushRank(Class<?> clazz, Set<Class<?>> path){
+        if(!path.add(clazz)) return 0;
+        int rank = 0;
+        for (Field field : getClassFields(clazz)) {
+            if(isOwningSingleReference(field))
+                rank = Math.max(rank, flushRank(field.getType(), path) + 1);
+        }
+        path.remove(clazz);
+        return rank;
+    }
+
+    //only these hold the foreign key column, so only these need their target's row to exist first
+    public static boolean isOwningSingleReference(Field field){
+        if(field.isAnnotationPresent(ManyToOne.class)) return true;
+        return field.isAnnotationPresent(OneToOne.class) && field.getAnnotation(OneToOne.class).mappedBy().equals("");
+    }
+}
@@ -0,0 +1,264 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.datafi.reflection.ReflectionCache;
+import dev.sanda.mockeri.meta.ClassAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.Query;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static dev.sanda.datafi.DatafiStaticUtils.getId;
+import static dev.sanda.datafi.reflection.ReflectionCache.getClassFields;
+import static dev.sanda.mockeri.StaticUtils.isId;
+
+//ids of the rows persisted by this run, so existing rows can be picked at random without loading whole tables
+@Component
+@SuppressWarnings("unchecked")
+public class IdRegistry {
+    @Value("${mockeri.population.link-by-reference:false}")
+    private String linkByReference;
+    //lookups between row counts, rows can be inserted behind the registry's back (cascades, other writers)
+    @Value("${mockeri.population.registry-recount-interval:1000}")
+    private String recountInterval;
+
+    @Autowired
+    private ReflectionCache reflectionCache;
+    @Autowired
+    private ClassAccessorFactory classAccessorFactory;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Map<Class<?>, TypeIds> registry = new ConcurrentHashMap<>();
+
+    //ids written inside a transaction are kept aside until it commits, and dropped if it rolls back
+    public void registerAll(Class<?> clazz, List<?> instances){
+        TypeIds ids = TransactionSynchronizationManager.isSynchronizationActive()
+                ? uncommittedIds().computeIfAbsent(clazz, this::newTypeIds)
+                : typeIds(clazz);
+        for (Object instance : instances) {
+            Object id = getId(instance, reflectionCache);
+            if(id != null) ids.add(id);
+        }
+    }
+
+    //null if there's no row other than the excluded one
+    public Object randomInstance(Class<?> clazz, Object excludedId){
+        TypeIds ids = typeIds(clazz);
+        //rows of the current transaction are only visible to it, so only it gets to pick them
+        Map<Class<?>, TypeIds> pending = (Map<Class<?>, TypeIds>) TransactionSynchronizationManager.getResource(this);
+        TypeIds uncommitted = pending != null ? pending.get(clazz) : null;
+        Object id;
+        if(isWarm(clazz, ids, uncommitted)) id = TypeIds.random(ids, uncommitted, excludedId);
+        else if(isLinkingByReference()) id = randomRow(clazz, excludedId, true);
+        else return randomRow(clazz, excludedId, false);
+        if(id == null) return null;
+        //an uninitialized proxy is enough to link a foreign key, and keeps the row out of the persistence context
+        if(isLinkingByReference()) return entityManager.getReference(clazz, id);
+        Object instance = entityManager.find(clazz, id);
+        //rows registered by another thread's transaction aren't visible until it commits
+        return instance != null ? instance : randomRow(clazz, excludedId, false);
+    }
+
+    //a bare instance carrying only the id of a committed row, for threads with no persistence context to load it into
+    public Object randomStandIn(Class<?> clazz, Object excludedId){
+        TypeIds ids = typeIds(clazz);
+        Object id = isWarm(clazz, ids, null) ? TypeIds.random(ids, null, excludedId) : randomRow(clazz, excludedId, true);
+        if(id == null) return null;
+        Object standIn = classAccessorFactory.classAccessor(clazz).newInstance();
+        classAccessorFactory.fieldAccessor(idField(clazz)).set(standIn, id);
+        return standIn;
+    }
+
+    public boolean isLinkingByReference(){
+        return Boolean.parseBoolean(linkByReference);
+    }
+
+    //reads the id of a reference proxy without initializing it
+    public Object idOf(Object instance){
+        if(isLinkingByReference()){
+            PersistenceUnitUtil persistenceUnitUtil = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+            if(!persistenceUnitUtil.isLoaded(instance)) return persistenceUnitUtil.getIdentifier(instance);
+        }
+        return getId(instance, reflectionCache);
+    }
+
+    public boolean hasPrimitiveId(Class<?> clazz){
+        return idField(clazz).getType().isPrimitive();
+    }
+
+    public void reset(){
+        registry.clear();
+    }
+
+    //a type is only served from the registry if every row in its table went through it, rechecked every so many lookups
+    private boolean isWarm(Class<?> clazz, TypeIds ids, TypeIds uncommitted){
+        if(ids.warm == null || ids.lookups.incrementAndGet() % Math.max(1, Integer.parseInt(recountInterval)) == 0)
+            ids.warm = countRows(clazz) == ids.size() + (uncommitted != null ? uncommitted.size() : 0);
+        return ids.warm;
+    }
+
+    private Map<Class<?>, TypeIds> uncommittedIds(){
+        Map<Class<?>, TypeIds> uncommitted = (Map<Class<?>, TypeIds>) TransactionSynchronizationManager.getResource(this);
+        if(uncommitted != null) return uncommitted;
+        final Map<Class<?>, TypeIds> pending = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(IdRegistry.this);
+                if(status == STATUS_COMMITTED) pending.forEach((type, ids) -> typeIds(type).addAll(ids));
+            }
+        });
+        return pending;
+    }
+
+    //the whole row, or only its id
+    private Object randomRow(Class<?> clazz, Object excludedId, boolean idOnly){
+        long count = countRows(clazz);
+        if(count == 0) return null;
+        String selection = idOnly ? "e." + idField(clazz).getName() : "e";
+        long offset = ThreadLocalRandom.current().nextLong(count);
+        Object row = rowAt(clazz, selection, offset);
+        if(row != null && excludedId != null && excludedId.equals(idOnly ? row : getId(row, reflectionCache))){
+            if(count == 1) return null;
+            row = rowAt(clazz, selection, (offset + 1) % count);
+        }
+        return row;
+    }
+
+    private long countRows(Class<?> clazz){
+        return entityManager
+                .createQuery("SELECT COUNT(e) FROM " + entityName(clazz) + " e", Long.class)
+                .getSingleResult();
+    }
+
+    //setFirstResult only takes an int, offsets past it are reached by keyset from the id at the largest int offset
+    private Object rowAt(Class<?> clazz, String selection, long offset){
+        String from = " FROM " + entityName(clazz) + " e";
+        if(offset <= Integer.MAX_VALUE) return firstRow(entityManager.createQuery("SELECT " + selection + from), (int) offset);
+        String id = "e." + idField(clazz).getName();
+        Object pivot = firstRow(entityManager.createQuery("SELECT " + id + from + " ORDER BY " + id), Integer.MAX_VALUE);
+        if(pivot == null) return null;
+        return firstRow(entityManager
+                .createQuery("SELECT " + selection + from + " WHERE " + id + " > :pivot ORDER BY " + id)
+                .setParameter("pivot", pivot), (int) Math.min(offset - Integer.MAX_VALUE - 1, Integer.MAX_VALUE));
+    }
+
+    private Object firstRow(Query query, int offset){
+        List<?> rows = query.setFirstResult(offset).setMaxResults(1).getResultList();
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private String entityName(Class<?> clazz){
+        Entity entity = clazz.getAnnotation(Entity.class);
+        return entity != null && !entity.name().equals("") ? entity.name() : clazz.getSimpleName();
+    }
+
+    private TypeIds typeIds(Class<?> clazz){
+        TypeIds ids = registry.get(clazz);
+        if(ids == null) ids = registry.computeIfAbsent(clazz, this::newTypeIds);
+        return ids;
+    }
+
+    private TypeIds newTypeIds(Class<?> clazz){
+        Class<?> idType = idField(clazz).getType();
+        return isIntegral(idType) ? new LongIds(idType) : new ObjectIds();
+    }
+
+    private Field idField(Class<?> clazz){
+        for (Field field : getClassFields(clazz))
+            if(isId(field)) return field;
+        throw new IllegalArgumentException("Cannot find id field of " + clazz.getSimpleName());
+    }
+
+    private boolean isIntegral(Class<?> type){
+        return type.equals(Long.class) || type.equals(long.class) ||
+               type.equals(Integer.class) || type.equals(int.class) ||
+               type.equals(Short.class) || type.equals(short.class);
+    }
+
+    private static abstract class TypeIds {
+        protected int size;
+        private volatile Boolean warm;
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        abstract void add(Object id);
+        abstract Object get(int index);
+
+        synchronized int size(){
+            return size;
+        }
+
+        synchronized void addAll(TypeIds other){
+            for (int i = 0; i < other.size(); i++) add(other.get(i));
+        }
+
+        //uniform pick over both, moving on to the next slot when the excluded id comes up
+        static Object random(TypeIds ids, TypeIds uncommitted, Object excludedId){
+            synchronized (ids) {
+                int committed = ids.size;
+                int total = committed + (uncommitted != null ? uncommitted.size() : 0);
+                if(total == 0) return null;
+                int index = ThreadLocalRandom.current().nextInt(total);
+                Object id = index < committed ? ids.get(index) : uncommitted.get(index - committed);
+                if(excludedId == null || !excludedId.equals(id)) return id;
+                if(total == 1) return null;
+                index = (index + 1) % total;
+                return index < committed ? ids.get(index) : uncommitted.get(index - committed);
+            }
+        }
+    }
+
+    private static class LongIds extends TypeIds {
+        private final Class<?> idType;
+        private long[] ids = new long[64];
+
+        private LongIds(Class<?> idType) {
+            this.idType = idType;
+        }
+
+        @Override
+        synchronized void add(Object id){
+            if(size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = ((Number) id).longValue();
+        }
+
+        @Override
+        Object get(int index){
+            long id = ids[index];
+            if(idType.equals(Integer.class) || idType.equals(int.class)) return (int) id;
+            if(idType.equals(Short.class) || idType.equals(short.class)) return (short) id;
+            return id;
+        }
+    }
+
+    private static class ObjectIds extends TypeIds {
+        private Object[] ids = new Object[64];
+
+        @Override
+        synchronized void add(Object id){
+            if(size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        @Override
+        Object get(int index){
+            return ids[index];
+        }
+    }
+}
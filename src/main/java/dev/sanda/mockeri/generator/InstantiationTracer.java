@@ -0,0 +1,114 @@
+package dev.sanda.mockeri.generator;
+
+import lombok.Getter;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+//the most recent instantiation events, nothing is recorded or formatted unless tracing is enabled
+@Component
+public class InstantiationTracer {
+    public enum Outcome {
+        CREATED, REUSED, NOT_FOUND
+    }
+
+    @Getter
+    public static class Event {
+        private final long sequence;
+        private final long timestamp;
+        private final String thread;
+        private final Class<?> type;
+        private final int depth;
+        private final Outcome outcome;
+        private final boolean persisted;
+
+        private Event(long sequence, Class<?> type, int depth, Outcome outcome, boolean persisted) {
+            this.sequence = sequence;
+            this.timestamp = System.currentTimeMillis();
+            this.thread = Thread.currentThread().getName();
+            this.type = type;
+            this.depth = depth;
+            this.outcome = outcome;
+            this.persisted = persisted;
+        }
+
+        @Override
+        public String toString(){
+            StringBuilder line = new StringBuilder();
+            line.append('#').append(sequence).append(" [").append(thread).append("] ");
+            for (int i = 0; i < depth; i++) line.append("  ");
+            line.append(type.getSimpleName()).append(' ').append(outcome);
+            if(outcome == Outcome.CREATED) line.append(persisted ? ", persisted" : ", transient");
+            return line.toString();
+        }
+    }
+
+    @Value("${mockeri.tracing.enabled:false}")
+    private String enabledProperty;
+    @Value("${mockeri.tracing.capacity:1024}")
+    private String capacityProperty;
+
+    private final static Logger logger = Logger.getLogger(InstantiationTracer.class);
+    private final AtomicLong sequence = new AtomicLong();
+    private boolean enabled;
+    private AtomicReferenceArray<Event> events;
+
+    @PostConstruct
+    private void init(){
+        enabled = Boolean.parseBoolean(enabledProperty);
+        if(enabled) events = new AtomicReferenceArray<>(Math.max(1, Integer.parseInt(capacityProperty)));
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public void created(Class<?> type, int depth, boolean persisted){
+        if(enabled) record(type, depth, Outcome.CREATED, persisted);
+    }
+
+    public void reused(Class<?> type, int depth){
+        if(enabled) record(type, depth, Outcome.REUSED, true);
+    }
+
+    public void notFound(Class<?> type, int depth){
+        if(enabled) record(type, depth, Outcome.NOT_FOUND, false);
+    }
+
+    private void record(Class<?> type, int depth, Outcome outcome, boolean persisted){
+        long next = sequence.getAndIncrement();
+        events.set((int) (next % events.length()), new Event(next, type, depth, outcome, persisted));
+    }
+
+    //oldest first
+    public List<Event> recentEvents(){
+        List<Event> recent = new ArrayList<>();
+        if(!enabled) return recent;
+        long end = sequence.get();
+        for (long i = Math.max(0, end - events.length()); i < end; i++) {
+            Event event = events.get((int) (i % events.length()));
+            //slots may already have been overwritten by newer events
+            if(event != null && event.getSequence() == i) recent.add(event);
+        }
+        return recent;
+    }
+
+    public void dump(Throwable cause){
+        if(!enabled) return;
+        StringBuilder dump = new StringBuilder("Recent instantiations before ")
+                .append(cause.getClass().getSimpleName()).append(": ").append(cause.getMessage());
+        for (Event event : recentEvents()) dump.append('\n').append(event);
+        logger.error(dump.toString());
+    }
+
+    public void reset(){
+        if(!enabled) return;
+        for (int i = 0; i < events.length(); i++) events.set(i, null);
+    }
+}
@@ -0,0 +1,207 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.meta.ColumnMapping;
+import dev.sanda.mockeri.meta.IdSequence;
+import dev.sanda.mockeri.meta.TableMapping;
+import dev.sanda.mockeri.meta.TableMappingFactory;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class JdbcEntityWriter {
+    public final static String JPA = "jpa";
+    public final static String JDBC = "jdbc";
+    public final static String JDBC_MULTI_ROW = "jdbc-multirow";
+
+    @Value("${mockeri.persistence.writer:jpa}")
+    private String writer;
+    @Value("${mockeri.persistence.jdbc.rows-per-statement:100}")
+    private String rowsPerStatement;
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private TableMappingFactory tableMappingFactory;
+    @Autowired
+    private IdRegistry idRegistry;
+
+    private final static Logger logger = Logger.getLogger(JdbcEntityWriter.class);
+    private final Map<Class<?>, Boolean> supportedTypes = new ConcurrentHashMap<>();
+    //ids drawn from each sequence and not yet used, {next, last}
+    private final Map<String, long[]> idBlocks = new ConcurrentHashMap<>();
+
+    public boolean isEnabled(){
+        return !writer.equals(JPA);
+    }
+
+    public boolean supports(Class<?> clazz){
+        if(!isEnabled()) return false;
+        return supportedTypes.computeIfAbsent(clazz, type -> {
+            TableMapping mapping = tableMappingFactory.tableMapping(type);
+            String unsupportedReason = mapping.getUnsupportedReason();
+            if(unsupportedReason == null && mapping.getIdSequence() != null && isTableBacked(mapping.getIdSequence()))
+                unsupportedReason = "ids of a sequence kept in a table";
+            if(unsupportedReason != null)
+                logger.warn("Falling back to JPA for " + type.getSimpleName() + ": " + unsupportedReason);
+            return unsupportedReason == null;
+        });
+    }
+
+    //on databases without sequences hibernate emulates one with a table, whose updates are part of the writer's transaction
+    private boolean isTableBacked(IdSequence sequence){
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, "%", new String[]{"TABLE"})) {
+            while (tables.next())
+                if(tables.getString("TABLE_NAME").equalsIgnoreCase(sequence.getName())) return true;
+            return false;
+        } catch (SQLException e){
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    public void write(Class<?> clazz, List<?> instances){
+        if(instances.isEmpty()) return;
+        TableMapping mapping = tableMappingFactory.tableMapping(clazz);
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if(mapping.getIdSequence() != null) assignSequenceIds(connection, mapping, instances);
+            for (Object instance : instances) mapping.seedVersion(instance);
+            if(writer.equals(JDBC_MULTI_ROW)) writeMultiRow(connection, mapping, instances);
+            else writeBatch(connection, mapping, instances);
+        } catch (SQLException e){
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private void writeBatch(Connection connection, TableMapping mapping, List<?> instances) throws SQLException {
+        try(PreparedStatement statement = prepare(connection, mapping, mapping.insertStatement(1))) {
+            for (Object instance : instances) {
+                bindRow(statement, mapping, instance, 0);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            if(mapping.isGeneratedId()) assignGeneratedIds(statement, mapping, instances, 0);
+        }
+    }
+
+    private void writeMultiRow(Connection connection, TableMapping mapping, List<?> instances) throws SQLException {
+        int rowsPerInsert = Math.max(1, Integer.parseInt(rowsPerStatement));
+        PreparedStatement fullStatement = null;
+        try {
+            for (int start = 0; start < instances.size(); start += rowsPerInsert) {
+                int rows = Math.min(rowsPerInsert, instances.size() - start);
+                PreparedStatement statement;
+                if(rows == rowsPerInsert){
+                    if(fullStatement == null)
+                        fullStatement = prepare(connection, mapping, mapping.insertStatement(rowsPerInsert));
+                    statement = fullStatement;
+                } else
+                    statement = prepare(connection, mapping, mapping.insertStatement(rows));
+                try {
+                    int columnCount = mapping.getColumns().size();
+                    for (int row = 0; row < rows; row++)
+                        bindRow(statement, mapping, instances.get(start + row), row * columnCount);
+                    statement.executeUpdate();
+                    if(mapping.isGeneratedId()) assignGeneratedIds(statement, mapping, instances, start);
+                } finally {
+                    if(statement != fullStatement) statement.close();
+                }
+            }
+        } finally {
+            if(fullStatement != null) fullStatement.close();
+        }
+    }
+
+    private PreparedStatement prepare(Connection connection, TableMapping mapping, String sql) throws SQLException {
+        return mapping.isGeneratedId()
+                ? connection.prepareStatement(sql, new String[]{mapping.getIdColumn()})
+                : connection.prepareStatement(sql);
+    }
+
+    private void bindRow(PreparedStatement statement, TableMapping mapping, Object instance, int offset) throws SQLException {
+        List<ColumnMapping> columns = mapping.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnMapping column = columns.get(i);
+            Object value = column.columnValue(instance, idRegistry::idOf);
+            if(value == null) statement.setNull(offset + i + 1, column.getSqlType());
+            else statement.setObject(offset + i + 1, value);
+        }
+    }
+
+    private void assignGeneratedIds(PreparedStatement statement, TableMapping mapping, List<?> instances, int start)
+            throws SQLException {
+        Class<?> idType = boxed(mapping.getIdField().getType());
+        try(ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            int index = start;
+            while (generatedKeys.next() && index < instances.size())
+                mapping.getIdAccessor().set(instances.get(index++), generatedKeys.getObject(1, idType));
+        }
+    }
+
+    private void assignSequenceIds(Connection connection, TableMapping mapping, List<?> instances) throws SQLException {
+        Class<?> idType = boxed(mapping.getIdField().getType());
+        for (Object instance : instances) {
+            Object id = mapping.getIdAccessor().get(instance);
+            if(id != null && ((Number) id).longValue() != 0) continue;
+            long next = nextId(connection, mapping.getIdSequence());
+            mapping.getIdAccessor().set(instance,
+                    idType.equals(Long.class) ? (Object) next : idType.equals(Integer.class) ? (Object) (int) next : (Object) (short) next);
+        }
+    }
+
+    //claims ids as hibernate's optimizers do, so ids it draws from the same sequence never collide with these
+    private long nextId(Connection connection, IdSequence sequence) throws SQLException {
+        long[] block = idBlocks.computeIfAbsent(sequence.getName(), name -> new long[]{1, 0});
+        synchronized (block) {
+            if(block[0] > block[1]){
+                long value = nextValue(connection, sequence.getName());
+                int allocationSize = sequence.getAllocationSize();
+                if(allocationSize <= 1){
+                    block[0] = block[1] = value;
+                } else if(value == sequence.getInitialValue()){
+                    //the first value of a new sequence, the pooled optimizer reads the next one as the upper bound
+                    block[0] = value;
+                    block[1] = nextValue(connection, sequence.getName());
+                } else {
+                    block[0] = value - allocationSize + 1;
+                    block[1] = value;
+                }
+            }
+            return block[0]++;
+        }
+    }
+
+    private long nextValue(Connection connection, String sequence) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName().toLowerCase();
+        String sql = product.contains("postgres") ? "SELECT nextval('" + sequence + "')"
+                : product.contains("oracle") ? "SELECT " + sequence + ".NEXTVAL FROM DUAL"
+                : "SELECT NEXT VALUE FOR " + sequence;
+        try (Statement statement = connection.createStatement();
+             ResultSet value = statement.executeQuery(sql)) {
+            value.next();
+            return value.getLong(1);
+        }
+    }
+
+    private Class<?> boxed(Class<?> type){
+        if(type.equals(long.class)) return Long.class;
+        if(type.equals(int.class)) return Integer.class;
+        if(type.equals(short.class)) return Short.class;
+        return type;
+    }
+}
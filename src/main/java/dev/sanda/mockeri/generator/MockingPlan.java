@@ -0,0 +1,29 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.meta.ClassAccessor;
+import lombok.Getter;
+
+//everything needed to mock an instance of an entity type, worked out once per type
+@Getter
+public class MockingPlan {
+    private final Class<?> entityType;
+    private final ClassAccessor accessor;
+    private final PlannedField[] fields;
+
+    public MockingPlan(ClassAccessor accessor, PlannedField[] fields) {
+        this.entityType = accessor.getType();
+        this.accessor = accessor;
+        this.fields = fields;
+    }
+
+    public Object newInstance(){
+        return accessor.newInstance();
+    }
+
+    //null if the field isn't mocked
+    public PlannedField field(String name){
+        for (PlannedField field : fields)
+            if(field.getField().getName().equals(name)) return field;
+        return null;
+    }
+}
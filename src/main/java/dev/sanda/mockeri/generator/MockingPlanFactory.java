@@ -0,0 +1,266 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.datafi.reflection.ReflectionCache;
+import dev.sanda.mockeri.annotations.FanOut;
+import dev.sanda.mockeri.annotations.MockData;
+import dev.sanda.mockeri.meta.ClassAccessor;
+import dev.sanda.mockeri.meta.ClassAccessorFactory;
+import dev.sanda.mockeri.meta.CollectionInstantiator;
+import dev.sanda.mockeri.meta.FanOutPolicy;
+import dev.sanda.mockeri.meta.FieldMetaInfo;
+import dev.sanda.mockeri.meta.FieldMetaInfoFactory;
+import dev.sanda.mockeri.meta.MockDataSource;
+import dev.sanda.mockeri.service.MockFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.Column;
+import javax.persistence.Lob;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static dev.sanda.datafi.reflection.ReflectionCache.getClassFields;
+import static dev.sanda.mockeri.StaticUtils.*;
+import static dev.sanda.mockeri.generator.PlannedField.Kind.*;
+import static dev.sanda.mockeri.generator.TestDataGenerator.randomFrom;
+import static dev.sanda.mockeri.service.CustomizedMockers.getCustomKeyword;
+import static dev.sanda.mockeri.service.CustomizedMockers.getMockFactory;
+
+//resolves annotations, datasets, factories and value types once per entity type rather than once per row
+@Component
+@SuppressWarnings("unchecked")
+public class MockingPlanFactory {
+    private final static int PRIMITIVE_COLLECTION_SIZE = 20;
+    private final static int DEFAULT_COLUMN_LENGTH = 255;
+    //column types without a length limit worth generating against, and ones with an explicit length
+    private final static Pattern UNBOUNDED_COLUMN = Pattern.compile("^\\s*(\\w*TEXT|N?CLOB|LONG\\s+VARCHAR)\\b", Pattern.CASE_INSENSITIVE);
+    private final static Pattern SIZED_COLUMN = Pattern.compile("^\\s*N?(VAR)?CHAR(ACTER)?(\\s+VARYING)?\\s*\\(\\s*(\\d+)", Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    private ReflectionCache reflectionCache;
+    @Autowired
+    private FieldMetaInfoFactory fieldMetaInfoFactory;
+    @Autowired
+    private CollectionInstantiator collectionInstantiator;
+    @Autowired
+    private TestDataGenerator testData;
+    @Autowired
+    private TextGenerator textGenerator;
+    @Autowired
+    private DateGenerator dateGenerator;
+    @Autowired
+    private ClassAccessorFactory classAccessorFactory;
+    @Autowired
+    private Environment environment;
+
+    private final Map<Class<?>, MockingPlan> plans = new ConcurrentHashMap<>();
+
+    public MockingPlan mockingPlan(Class<?> clazz){
+        MockingPlan plan = plans.get(clazz);
+        if(plan == null){
+            plan = compile(clazz);
+            plans.put(clazz, plan);
+        }
+        return plan;
+    }
+
+    private MockingPlan compile(Class<?> clazz){
+        //fresh instances all start out like this one, so whatever it has initialized is left alone
+        ClassAccessor accessor = classAccessorFactory.classAccessor(clazz);
+        Object prototype = accessor.newInstance();
+        List<PlannedField> fields = new ArrayList<>();
+        for (Field field : getClassFields(clazz)) {
+            PlannedField planned = plan(field, fieldMetaInfoFactory.fieldMetaInfo(prototype, field));
+            if(planned != null) fields.add(planned);
+        }
+        return new MockingPlan(accessor, fields.toArray(new PlannedField[0]));
+    }
+
+    private PlannedField plan(Field field, FieldMetaInfo fieldMetaInfo){
+        if(!fieldMetaInfo.isToInstantiate()){
+            if(!fieldMetaInfo.isInitEmptyCollection()) return null;
+            Class<?> collectibleType = collectibleType(field, reflectionCache);
+            return new PlannedField(classAccessorFactory.fieldAccessor(field), fieldMetaInfo, EMPTY_COLLECTION,
+                    () -> collectionInstantiator.instantiateCollection(field.getType(), collectibleType));
+        }
+        if(fieldMetaInfo.getMockDataSource() == MockDataSource.DEFAULT){
+            switch (fieldMetaInfo.getFieldReferenceType()){
+                case SINGLE_FOREIGN_KEY:
+                    return new PlannedField(classAccessorFactory.fieldAccessor(field), fieldMetaInfo, SINGLE_FOREIGN_KEY, null);
+                case FOREIGN_KEY_COLLECTION:
+                    return new PlannedField(
+                            classAccessorFactory.fieldAccessor(field), fieldMetaInfo, FOREIGN_KEY_COLLECTION, null, fanOut(field));
+            }
+        }
+        Supplier<?> valueSource = valueSource(field, fieldMetaInfo);
+        return valueSource == null ? null : new PlannedField(classAccessorFactory.fieldAccessor(field), fieldMetaInfo, VALUE, valueSource);
+    }
+
+    //a mockeri.fan-out.<Entity>.<field> property takes precedence over the field's @FanOut
+    private FanOutPolicy fanOut(Field field){
+        String property = environment.getProperty(
+                "mockeri.fan-out." + field.getDeclaringClass().getSimpleName() + "." + field.getName());
+        if(property != null) return FanOutPolicy.parse(property);
+        FanOut fanOut = field.getAnnotation(FanOut.class);
+        return fanOut != null ? FanOutPolicy.of(fanOut) : null;
+    }
+
+    private Supplier<?> valueSource(Field field, FieldMetaInfo fieldMetaInfo){
+        MockData mockData = field.getAnnotation(MockData.class);
+        switch (fieldMetaInfo.getMockDataSource()){
+            case KEYWORD: return keywordSource(field, mockData);
+            case CUSTOM_KEYWORD: {
+                List<Object> dataset = getCustomKeyword(mockData.customKeyword().toUpperCase());
+                return () -> randomFrom(dataset);
+            }
+            case OF_SET: return ofSetSource(field.getType(), mockData.ofSet());
+            case MIN_MAX_RANGE: return rangeSource(field.getType(), mockData.min(), mockData.max());
+            case MOCK_FACTORY: {
+                MockFactory mockFactory = getMockFactory(mockData.mockFactoryBean().getSimpleName());
+                return mockFactory::value;
+            }
+        }
+        switch (fieldMetaInfo.getFieldReferenceType()){
+            case SINGLE_PRIMITIVE:
+                if(field.getType().equals(String.class)) return sentenceSource(field);
+                if(dateGenerator.supports(field.getType()))
+                    return dateSource(field.getType(), dateGenerator.around(mockData != null ? mockData.years() : -1));
+                return defaultSource(field.getType());
+            case PRIMITIVE_COLLECTION: return collectionSource(field);
+        }
+        return null;
+    }
+
+    //dates of any other type than the supported ones fall back to LocalDate, as the keywords always have
+    private Supplier<?> dateSource(Class<?> type, DateGenerator.DateRange range){
+        Supplier<?> source = range.source(type);
+        return source != null ? source : (Supplier<?>) range::localDate;
+    }
+
+    private Supplier<?> sentenceSource(Field field){
+        final int maxLength = maxLength(field);
+        return () -> textGenerator.sentence(maxLength);
+    }
+
+    private Supplier<?> paragraphSource(Field field){
+        final int maxLength = maxLength(field);
+        return () -> textGenerator.paragraph(maxLength);
+    }
+
+    //generated text never exceeds the column, which is 255 characters unless mapped otherwise
+    private int maxLength(Field field){
+        if(field.isAnnotationPresent(Lob.class)) return TextGenerator.UNBOUNDED;
+        Column column = field.getAnnotation(Column.class);
+        if(column == null) return DEFAULT_COLUMN_LENGTH;
+        //the column definition is what the schema is generated from, length is ignored alongside it
+        if(UNBOUNDED_COLUMN.matcher(column.columnDefinition()).find()) return TextGenerator.UNBOUNDED;
+        Matcher sized = SIZED_COLUMN.matcher(column.columnDefinition());
+        if(sized.find()) return Integer.parseInt(sized.group(4));
+        return column.length();
+    }
+
+    private Supplier<?> keywordSource(Field field, MockData mockData){
+        switch (mockData.keyword()){
+            case PAST_DATE: return dateSource(field.getType(), dateGenerator.past(mockData.years()));
+            case FUTURE_DATE: return dateSource(field.getType(), dateGenerator.future(mockData.years()));
+            case NAME: return randomFromSource(testData.getFirstNames());
+            case ADDRESS: return randomFromSource(testData.getAddresses());
+            case CITY: return randomFromSource(testData.getCities());
+            case STATE: return randomFromSource(testData.getStateOrProvinces());
+            case COUNTRY: return randomFromSource(testData.getCountries());
+            case ZIP: return randomFromSource(testData.getZipCodes());
+            case PHONE: return randomFromSource(testData.getPhone1s());
+            case EMAIL: return randomFromSource(testData.getEmails());
+            case PARAGRAPH: return paragraphSource(field);
+            case COMPANY: return randomFromSource(testData.getCompanies());
+            case URL: return randomFromSource(testData.getWebsites());
+            case PASSWORD: return testData::password;
+        }
+        return null;
+    }
+
+    private Supplier<?> ofSetSource(Class<?> type, String[] ofSet){
+        if(type.isEnum()){
+            List<Object> constants = new ArrayList<>();
+            for (String name : ofSet) constants.add(Enum.valueOf((Class<Enum>) type, name));
+            return randomFromSource(constants);
+        }
+        return randomFromSource(Arrays.asList(ofSet));
+    }
+
+    private Supplier<?> rangeSource(Class<?> type, int min, int max){
+        if(type.equals(Double.class) || type.equals(double.class))
+            return () -> ThreadLocalRandom.current().nextDouble(min, max);
+        if(type.equals(Float.class) || type.equals(float.class))
+            return () -> (float) ThreadLocalRandom.current().nextDouble(min, max);
+        if(type.equals(Long.class) || type.equals(long.class))
+            return () -> ThreadLocalRandom.current().nextLong(min, max);
+        if(type.equals(Integer.class) || type.equals(int.class))
+            return () -> ThreadLocalRandom.current().nextInt(min, max);
+        if(type.equals(Short.class) || type.equals(short.class))
+            return () -> (short) ThreadLocalRandom.current().nextInt(min, max);
+        if(type.equals(Byte.class) || type.equals(byte.class))
+            return () -> (byte) ThreadLocalRandom.current().nextInt(min, max);
+        if(type.equals(BigDecimal.class))
+            return () -> generateRandomBigDecimalFromRange(min, max);
+        return null;
+    }
+
+    private Supplier<?> defaultSource(Class<?> type){
+        if(type.equals(String.class)) return () -> textGenerator.sentence(DEFAULT_COLUMN_LENGTH);
+        if(type.equals(Double.class) || type.equals(double.class)) return testData::aDouble;
+        if(type.equals(Float.class) || type.equals(float.class)) return () -> ThreadLocalRandom.current().nextFloat();
+        if(type.equals(Long.class) || type.equals(long.class)) return () -> ThreadLocalRandom.current().nextLong();
+        if(type.equals(Integer.class) || type.equals(int.class)) return () -> ThreadLocalRandom.current().nextInt();
+        if(type.equals(Short.class) || type.equals(short.class))
+            return () -> (short) ThreadLocalRandom.current().nextInt(Short.MIN_VALUE, Short.MAX_VALUE + 1);
+        if(type.equals(Byte.class) || type.equals(byte.class))
+            return () -> (byte) ThreadLocalRandom.current().nextInt(Byte.MIN_VALUE, Byte.MAX_VALUE + 1);
+        if(type.equals(Boolean.class) || type.equals(boolean.class)) return () -> ThreadLocalRandom.current().nextBoolean();
+        if(type.equals(Character.class) || type.equals(char.class))
+            return () -> (char) ('a' + ThreadLocalRandom.current().nextInt(26));
+        if(type.equals(BigDecimal.class)) return () -> generateRandomBigDecimalFromRange(0, 1000000);
+        if(dateGenerator.supports(type)) return dateGenerator.getDefaultRange().source(type);
+        if(type.equals(URL.class)) {
+            List<String> websites = testData.getWebsites();
+            return () -> toUrlType(randomFrom(websites));
+        }
+        if(type.isEnum()) return randomFromSource(Arrays.asList(type.getEnumConstants()));
+        return null;
+    }
+
+    private Supplier<?> collectionSource(Field field){
+        Class<?> elementType = elementType(field);
+        if(elementType == null) return null;
+        //a @Column on an element collection maps the element column
+        Supplier<?> elementSource = elementType.equals(String.class) ? sentenceSource(field) : defaultSource(elementType);
+        if(elementSource == null) return null;
+        Class<?> collectionType = field.getType();
+        return () -> {
+            Collection<Object> collection = collectionInstantiator.instantiateCollection(collectionType, elementType);
+            for (int i = 0; i < PRIMITIVE_COLLECTION_SIZE; i++) collection.add(elementSource.get());
+            return collection;
+        };
+    }
+
+    private Class<?> elementType(Field field){
+        Type genericType = field.getGenericType();
+        if(!(genericType instanceof ParameterizedType)) return null;
+        Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+        return elementType instanceof Class ? (Class<?>) elementType : null;
+    }
+
+    private static <T> Supplier<T> randomFromSource(List<T> values){
+        return () -> randomFrom(values);
+    }
+}
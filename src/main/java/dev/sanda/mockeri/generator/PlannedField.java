@@ -0,0 +1,51 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.meta.FanOutPolicy;
+import dev.sanda.mockeri.meta.FieldAccessor;
+import dev.sanda.mockeri.meta.FieldMetaInfo;
+import dev.sanda.mockeri.meta.FieldReferenceType;
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.util.function.Supplier;
+
+@Getter
+public class PlannedField {
+    public enum Kind {
+        VALUE, EMPTY_COLLECTION, SINGLE_FOREIGN_KEY, FOREIGN_KEY_COLLECTION
+    }
+    private final Field field;
+    private final FieldAccessor accessor;
+    private final FieldMetaInfo fieldMetaInfo;
+    private final Kind kind;
+    //null for relationships, these are resolved by the mocker
+    private final Supplier<?> valueSource;
+    //null unless the relationship collection configures its own fan out
+    private final FanOutPolicy fanOut;
+
+    public PlannedField(FieldAccessor accessor, FieldMetaInfo fieldMetaInfo, Kind kind, Supplier<?> valueSource) {
+        this(accessor, fieldMetaInfo, kind, valueSource, null);
+    }
+
+    public PlannedField(FieldAccessor accessor, FieldMetaInfo fieldMetaInfo, Kind kind, Supplier<?> valueSource, FanOutPolicy fanOut) {
+        this.field = accessor.getField();
+        this.accessor = accessor;
+        this.fieldMetaInfo = fieldMetaInfo;
+        this.kind = kind;
+        this.valueSource = valueSource;
+        this.fanOut = fanOut;
+    }
+
+    public boolean isRelationship(){
+        FieldReferenceType referenceType = fieldMetaInfo.getFieldReferenceType();
+        return referenceType == FieldReferenceType.SINGLE_FOREIGN_KEY || referenceType == FieldReferenceType.FOREIGN_KEY_COLLECTION;
+    }
+
+    public Object nextValue(){
+        return valueSource.get();
+    }
+
+    public void set(Object instance, Object value){
+        accessor.set(instance, value);
+    }
+}
@@ -0,0 +1,145 @@
+package dev.sanda.mockeri.generator;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//hard row limits, once a limit is hit relationships are linked to existing rows instead of generating new ones
+@Component
+@SuppressWarnings("unchecked")
+public class PopulationBudget {
+    private final static String TYPE_ROWS_PREFIX = "mockeri.budget.type-rows.";
+
+    @Value("${mockeri.budget.total-rows:0}")
+    private String totalRowsProperty;
+
+    @Autowired
+    private Environment environment;
+    @Autowired
+    private ReferenceReusePolicy referenceReusePolicy;
+
+    private final static Logger logger = Logger.getLogger(PopulationBudget.class);
+    //0 for types without a budget
+    private final Map<Class<?>, Long> typeBudgets = new ConcurrentHashMap<>();
+    private final Map<Class<?>, AtomicLong> typeRows = new ConcurrentHashMap<>();
+    private final AtomicLong totalRows = new AtomicLong();
+    private long totalBudget;
+    private boolean enabled;
+
+    @PostConstruct
+    private void init(){
+        totalBudget = Long.parseLong(totalRowsProperty);
+        enabled = totalBudget > 0 || hasTypeBudgets();
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    //0 if the type has no budget of its own
+    public long typeBudget(Class<?> type){
+        return typeBudgets.computeIfAbsent(type, clazz ->
+                Long.parseLong(environment.getProperty(TYPE_ROWS_PREFIX + clazz.getSimpleName(), "0")));
+    }
+
+    public long getTotalBudget(){
+        return totalBudget;
+    }
+
+    //rows written inside a transaction only count once it commits, until then only that transaction sees them
+    public void recordRows(Class<?> type, int rows){
+        if(!enabled || rows == 0) return;
+        if(TransactionSynchronizationManager.isSynchronizationActive())
+            uncommittedRows().merge(type, (long) rows, Long::sum);
+        else commit(type, rows);
+    }
+
+    private void commit(Class<?> type, long rows){
+        long typeTotal = typeRows.computeIfAbsent(type, clazz -> new AtomicLong()).addAndGet(rows);
+        long budget = typeBudget(type);
+        if(budget > 0 && typeTotal >= budget && typeTotal - rows < budget){
+            logger.info("Row budget of " + budget + " reached for " + type.getSimpleName() + ", reusing existing rows");
+            referenceReusePolicy.markReusable(type);
+        }
+        long total = totalRows.addAndGet(rows);
+        if(totalBudget > 0 && total >= totalBudget && total - rows < totalBudget){
+            logger.info("Total row budget of " + totalBudget + " reached, reusing existing rows");
+            referenceReusePolicy.markAllReusable();
+        }
+    }
+
+    private Map<Class<?>, Long> uncommittedRows(){
+        Map<Class<?>, Long> uncommitted = (Map<Class<?>, Long>) TransactionSynchronizationManager.getResource(this);
+        if(uncommitted != null) return uncommitted;
+        final Map<Class<?>, Long> pending = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, pending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PopulationBudget.this);
+                if(status == STATUS_COMMITTED) pending.forEach(PopulationBudget.this::commit);
+            }
+        });
+        return pending;
+    }
+
+    //how many of the requested root entities still fit within the budgets
+    public int allowedRoots(Class<?> type, int requested){
+        if(!enabled) return requested;
+        long allowed = requested;
+        long budget = typeBudget(type);
+        if(budget > 0) allowed = Math.min(allowed, budget - rows(type));
+        if(totalBudget > 0) allowed = Math.min(allowed, totalBudget - totalRows());
+        return (int) Math.max(0, allowed);
+    }
+
+    //true once the type's own budget or the total budget has been used up
+    public boolean isExhausted(Class<?> type){
+        if(!enabled) return false;
+        long budget = typeBudget(type);
+        return (budget > 0 && rows(type) >= budget) || (totalBudget > 0 && totalRows() >= totalBudget);
+    }
+
+    //committed rows, plus those the current transaction has written so far
+    public long rows(Class<?> type){
+        AtomicLong rows = typeRows.get(type);
+        Map<Class<?>, Long> uncommitted = (Map<Class<?>, Long>) TransactionSynchronizationManager.getResource(this);
+        return (rows != null ? rows.get() : 0) + (uncommitted != null ? uncommitted.getOrDefault(type, 0L) : 0);
+    }
+
+    private long totalRows(){
+        Map<Class<?>, Long> uncommitted = (Map<Class<?>, Long>) TransactionSynchronizationManager.getResource(this);
+        long rows = totalRows.get();
+        if(uncommitted != null) for (long pending : uncommitted.values()) rows += pending;
+        return rows;
+    }
+
+    public void reset(){
+        typeRows.clear();
+        totalRows.set(0);
+    }
+
+    //so that row counting costs nothing unless some budget is configured
+    private boolean hasTypeBudgets(){
+        if(!(environment instanceof ConfigurableEnvironment)) return false;
+        for (PropertySource<?> source : ((ConfigurableEnvironment) environment).getPropertySources()) {
+            if(!(source instanceof EnumerablePropertySource)) continue;
+            for (String name : ((EnumerablePropertySource<?>) source).getPropertyNames())
+                if(name.startsWith(TYPE_ROWS_PREFIX)) return true;
+        }
+        return false;
+    }
+}
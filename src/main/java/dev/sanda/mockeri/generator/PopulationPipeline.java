@@ -0,0 +1,156 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.meta.MockingContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+//generator threads build root graphs without touching the database, writer threads drain them from a bounded queue
+@Component
+@SuppressWarnings("unchecked")
+public class PopulationPipeline {
+    private final static int MAX_ROOTS_PER_TRANSACTION = 100;
+    //tells a writer that the generators are done
+    private final static List<Map.Entry<Class<?>, Object>> END = new ArrayList<>();
+
+    @Autowired
+    private EntityMocker entityMocker;
+    @Autowired
+    private EntityPersister entityPersister;
+    @Autowired
+    private PopulationBudget budget;
+    @Autowired
+    private MockingPlanFactory mockingPlanFactory;
+    @Autowired
+    private IdRegistry idRegistry;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //blocks until every generated root has been written, onWritten gets the number of roots per commit
+    public void populate(Class<?> type, int quantity, int queueDepth, int writers, int generators, IntConsumer onWritten){
+        int writerCount = Math.max(1, writers);
+        int generatorCount = generators > 0 ? generators : Runtime.getRuntime().availableProcessors();
+        BlockingQueue<List<Map.Entry<Class<?>, Object>>> queue = new ArrayBlockingQueue<>(queueDepth);
+        AtomicInteger remaining = new AtomicInteger(quantity);
+        ExecutorService executor = Executors.newFixedThreadPool(generatorCount + writerCount, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "mockeri-pipeline-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        ExecutorCompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+        try {
+            List<Future<Void>> generatorTasks = new ArrayList<>();
+            for (int i = 0; i < generatorCount; i++)
+                generatorTasks.add(completionService.submit(() -> generate(type, remaining, queue), null));
+            for (int i = 0; i < writerCount; i++)
+                completionService.submit(() -> write(queue, onWritten), null);
+            int generatorsRunning = generatorCount;
+            for (int finished = 0; finished < generatorCount + writerCount; finished++) {
+                Future<Void> next = completionService.take();
+                next.get();
+                if(generatorTasks.contains(next) && --generatorsRunning == 0)
+                    for (int i = 0; i < writerCount; i++) queue.put(END);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void generate(Class<?> type, AtomicInteger remaining, BlockingQueue<List<Map.Entry<Class<?>, Object>>> queue){
+        MockingContext context = new MockingContext();
+        try {
+            while (remaining.getAndDecrement() > 0 && budget.allowedRoots(type, 1) > 0){
+                entityMocker.instantiateDeferredEntity(type, context.reset());
+                //blocks while the writers are behind, which keeps the number of graphs in memory bounded
+                queue.put(context.drainDeferred());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void write(BlockingQueue<List<Map.Entry<Class<?>, Object>>> queue, IntConsumer onWritten){
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            boolean done = false;
+            while (!done){
+                List<List<Map.Entry<Class<?>, Object>>> graphs = new ArrayList<>();
+                graphs.add(queue.take());
+                queue.drainTo(graphs, MAX_ROOTS_PER_TRANSACTION - 1);
+                //end markers only follow the last graph, any taken beyond the first belong to other writers
+                int ends = 0;
+                for (int i = graphs.size() - 1; i >= 0; i--)
+                    if(graphs.get(i) == END){
+                        graphs.remove(i);
+                        ends++;
+                    }
+                for (int i = 1; i < ends; i++) queue.put(END);
+                done = ends > 0;
+                if(graphs.isEmpty()) continue;
+                transactionTemplate.execute(status -> {
+                    linkExistingRows(graphs);
+                    entityPersister.batch(() -> {
+                        //each graph is ordered children first, so referenced rows are always written before their referrers
+                        for (List<Map.Entry<Class<?>, Object>> graph : graphs)
+                            for (Map.Entry<Class<?>, Object> entity : graph)
+                                entityPersister.persist(entity.getKey(), entity.getValue());
+                    });
+                    entityManager.flush();
+                    entityManager.clear();
+                    return null;
+                });
+                onWritten.accept(graphs.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    //the generators left stand-ins for the existing rows they picked, these become references of this transaction
+    private void linkExistingRows(List<List<Map.Entry<Class<?>, Object>>> graphs){
+        Set<Object> generated = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<Map.Entry<Class<?>, Object>> graph : graphs)
+            for (Map.Entry<Class<?>, Object> entity : graph) generated.add(entity.getValue());
+        for (List<Map.Entry<Class<?>, Object>> graph : graphs)
+            for (Map.Entry<Class<?>, Object> entity : graph)
+                for (PlannedField plannedField : mockingPlanFactory.mockingPlan(entity.getKey()).getFields()) {
+                    if(!plannedField.isRelationship()) continue;
+                    Object value = plannedField.getAccessor().get(entity.getValue());
+                    if(value == null) continue;
+                    if(value instanceof Collection){
+                        Collection<Object> values = (Collection<Object>) value;
+                        if(generated.containsAll(values)) continue;
+                        List<Object> linked = new ArrayList<>(values.size());
+                        for (Object element : values) linked.add(generated.contains(element) ? element : reference(element));
+                        values.clear();
+                        values.addAll(linked);
+                    } else if(!generated.contains(value)) plannedField.set(entity.getValue(), reference(value));
+                }
+    }
+
+    private Object reference(Object standIn){
+        return entityManager.getReference(standIn.getClass(), idRegistry.idOf(standIn));
+    }
+}
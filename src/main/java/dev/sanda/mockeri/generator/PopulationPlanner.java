@@ -0,0 +1,167 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.datafi.reflection.CachedEntityTypeInfo;
+import dev.sanda.datafi.reflection.ReflectionCache;
+import dev.sanda.mockeri.meta.ColumnMapping;
+import dev.sanda.mockeri.meta.FanOutPolicy;
+import dev.sanda.mockeri.meta.TableMappingFactory;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.Column;
+import java.sql.Types;
+import java.util.*;
+
+import static dev.sanda.mockeri.StaticUtils.collectibleType;
+
+//predicts how many rows population will generate, following relationships the same way the mocker does
+@Component
+public class PopulationPlanner {
+    private final static int ROW_OVERHEAD_BYTES = 24;
+    private final static int TEXT_BYTES = 32;
+
+    @Autowired
+    private ReflectionCache reflectionCache;
+    @Autowired
+    private MockingPlanFactory mockingPlanFactory;
+    @Autowired
+    private TableMappingFactory tableMappingFactory;
+    @Autowired
+    private EntityMocker entityMocker;
+    @Autowired
+    private ReferenceReusePolicy referenceReusePolicy;
+    @Autowired
+    private PopulationBudget budget;
+
+    @Getter
+    public static class TableEstimate {
+        private final Class<?> type;
+        private final long rows;
+        private final int bytesPerRow;
+        //0 if the type has no budget of its own
+        private final long budget;
+
+        private TableEstimate(Class<?> type, long rows, int bytesPerRow, long budget) {
+            this.type = type;
+            this.rows = rows;
+            this.bytesPerRow = bytesPerRow;
+            this.budget = budget;
+        }
+
+        public long getBytes(){
+            return rows * bytesPerRow;
+        }
+
+        public boolean isOverBudget(){
+            return budget > 0 && rows > budget;
+        }
+    }
+
+    @Getter
+    public static class Estimate {
+        private final List<TableEstimate> tables;
+        private final long totalBudget;
+
+        private Estimate(List<TableEstimate> tables, long totalBudget) {
+            this.tables = tables;
+            this.totalBudget = totalBudget;
+        }
+
+        public long getRows(){
+            return tables.stream().mapToLong(TableEstimate::getRows).sum();
+        }
+
+        public long getBytes(){
+            return tables.stream().mapToLong(TableEstimate::getBytes).sum();
+        }
+
+        public boolean isOverBudget(){
+            return (totalBudget > 0 && getRows() > totalBudget) || tables.stream().anyMatch(TableEstimate::isOverBudget);
+        }
+
+        @Override
+        public String toString(){
+            StringBuilder report = new StringBuilder("Population plan (estimated)");
+            for (TableEstimate table : tables) {
+                report.append(String.format("%n  %-30s %,12d rows %12s", table.getType().getSimpleName(),
+                        table.getRows(), formatBytes(table.getBytes())));
+                if(table.isOverBudget()) report.append(String.format("  over budget of %,d", table.getBudget()));
+            }
+            report.append(String.format("%n  %-30s %,12d rows %12s", "total", getRows(), formatBytes(getBytes())));
+            if(totalBudget > 0 && getRows() > totalBudget)
+                report.append(String.format("  over budget of %,d", totalBudget));
+            return report.toString();
+        }
+
+        private static String formatBytes(long bytes){
+            if(bytes < 1024) return bytes + " B";
+            if(bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+            if(bytes < 1024L * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024));
+            return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+        }
+    }
+
+    public Estimate estimate(Map<CachedEntityTypeInfo, Integer> plan){
+        Map<Class<?>, Double> expectedRows = new LinkedHashMap<>();
+        Set<Class<?>> path = new HashSet<>();
+        plan.forEach((type, quantity) -> walk(type.getClazz(), quantity, path, expectedRows));
+        List<TableEstimate> tables = new ArrayList<>();
+        expectedRows.forEach((type, rows) -> tables.add(
+                new TableEstimate(type, Math.round(rows), bytesPerRow(type), budget.typeBudget(type))));
+        tables.sort(Comparator.comparingLong(TableEstimate::getRows).reversed());
+        return new Estimate(tables, budget.getTotalBudget());
+    }
+
+    private void walk(Class<?> type, double rows, Set<Class<?>> path, Map<Class<?>, Double> expectedRows){
+        if(rows <= 0) return;
+        expectedRows.merge(type, rows, Double::sum);
+        path.add(type);
+        for (PlannedField plannedField : mockingPlanFactory.mockingPlan(type).getFields()) {
+            Class<?> target;
+            double perParent;
+            switch (plannedField.getKind()){
+                case SINGLE_FOREIGN_KEY:
+                    target = plannedField.getField().getType();
+                    perParent = 1;
+                    break;
+                case FOREIGN_KEY_COLLECTION:
+                    target = collectibleType(plannedField.getField(), reflectionCache);
+                    FanOutPolicy fanOut = plannedField.getFanOut() != null ? plannedField.getFanOut() : entityMocker.getDefaultFanOut();
+                    perParent = fanOut.getMean();
+                    break;
+                default: continue;
+            }
+            //cycles and reusable types are linked to existing rows rather than generated
+            if(path.contains(target) || referenceReusePolicy.isReusable(target)) continue;
+            walk(target, rows * perParent, path, expectedRows);
+        }
+        path.remove(type);
+    }
+
+    private int bytesPerRow(Class<?> type){
+        int bytes = ROW_OVERHEAD_BYTES;
+        for (ColumnMapping column : tableMappingFactory.tableMapping(type).getAllColumns())
+            bytes += columnBytes(column);
+        return bytes;
+    }
+
+    private int columnBytes(ColumnMapping column){
+        switch (column.getSqlType()){
+            case Types.BOOLEAN:
+            case Types.TINYINT: return 1;
+            case Types.SMALLINT: return 2;
+            case Types.INTEGER:
+            case Types.REAL:
+            case Types.DATE: return 4;
+            case Types.BIGINT:
+            case Types.DOUBLE:
+            case Types.TIMESTAMP: return 8;
+            case Types.VARCHAR: {
+                Column annotation = column.getField().getAnnotation(Column.class);
+                return annotation != null ? Math.min(annotation.length(), TEXT_BYTES) : TEXT_BYTES;
+            }
+            default: return 16;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package dev.sanda.mockeri.generator;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PopulationProgress {
+    @Getter
+    public static class TypeProgress {
+        private final long planned;
+        private final AtomicLong done = new AtomicLong();
+
+        private TypeProgress(long planned) {
+            this.planned = planned;
+        }
+
+        public long getDone(){
+            return done.get();
+        }
+        public boolean isComplete(){
+            return done.get() >= planned;
+        }
+    }
+
+    private final Map<String, TypeProgress> types = new ConcurrentHashMap<>();
+    private volatile long startedAt = System.nanoTime();
+    private volatile boolean finished;
+
+    public void start(Map<String, Integer> plan){
+        plan.forEach((type, planned) -> types.put(type, new TypeProgress(planned)));
+        startedAt = System.nanoTime();
+    }
+
+    public void increment(String type){
+        increment(type, 1);
+    }
+
+    public void increment(String type, int rows){
+        TypeProgress progress = types.get(type);
+        if(progress != null) progress.done.addAndGet(rows);
+    }
+
+    public void finish(){
+        finished = true;
+    }
+
+    public boolean isFinished(){
+        return finished;
+    }
+
+    public Map<String, TypeProgress> getTypes(){
+        return Collections.unmodifiableMap(new LinkedHashMap<>(types));
+    }
+
+    public long getRowsPlanned(){
+        return types.values().stream().mapToLong(TypeProgress::getPlanned).sum();
+    }
+
+    public long getRowsDone(){
+        return types.values().stream().mapToLong(TypeProgress::getDone).sum();
+    }
+
+    public Duration getElapsed(){
+        return Duration.ofNanos(System.nanoTime() - startedAt);
+    }
+
+    //null until the first row is done
+    public Duration getEta(){
+        if(finished) return Duration.ZERO;
+        long done = getRowsDone();
+        if(done == 0) return null;
+        long remaining = Math.max(0, getRowsPlanned() - done);
+        return Duration.ofNanos((long) ((System.nanoTime() - startedAt) * ((double) remaining / done)));
+    }
+
+    @Override
+    public String toString(){
+        return getRowsDone() + "/" + getRowsPlanned() + " rows" + (finished ? ", finished" : ", eta " + getEta());
+    }
+}
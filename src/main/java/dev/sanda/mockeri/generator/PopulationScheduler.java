@@ -0,0 +1,96 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.datafi.reflection.CachedEntityTypeInfo;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+import static dev.sanda.datafi.reflection.ReflectionCache.getClassFields;
+import static dev.sanda.mockeri.generator.EntityPersister.isOwningSingleReference;
+
+@Component
+public class PopulationScheduler {
+    @Value("${mockeri.population.parallelism:1}")
+    private String parallelism;
+
+    private final static Logger logger = Logger.getLogger(PopulationScheduler.class);
+
+    public void schedule(Map<CachedEntityTypeInfo, Integer> plan, BiConsumer<CachedEntityTypeInfo, Integer> task){
+        int poolSize = Integer.parseInt(parallelism);
+        if(poolSize <= 1){
+            plan.forEach(task);
+            return;
+        }
+        Map<CachedEntityTypeInfo, Set<CachedEntityTypeInfo>> dependencies = dependencyGraph(plan.keySet());
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        try {
+            runInDependencyOrder(plan, dependencies, task, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public Map<CachedEntityTypeInfo, Set<CachedEntityTypeInfo>> dependencyGraph(Collection<CachedEntityTypeInfo> types){
+        Map<Class<?>, CachedEntityTypeInfo> byClass = new HashMap<>();
+        types.forEach(type -> byClass.put(type.getClazz(), type));
+        Map<CachedEntityTypeInfo, Set<CachedEntityTypeInfo>> dependencies = new LinkedHashMap<>();
+        for (CachedEntityTypeInfo type : types) {
+            Set<CachedEntityTypeInfo> referenced = new HashSet<>();
+            for (Field field : getClassFields(type.getClazz())) {
+                //the inverse side and collections are written with their owner, they don't order the tables
+                if(!isOwningSingleReference(field) || field.getType().equals(type.getClazz())) continue;
+                CachedEntityTypeInfo targetType = byClass.get(field.getType());
+                if(targetType != null) referenced.add(targetType);
+            }
+            dependencies.put(type, referenced);
+        }
+        return dependencies;
+    }
+
+    private void runInDependencyOrder(
+            Map<CachedEntityTypeInfo, Integer> plan,
+            Map<CachedEntityTypeInfo, Set<CachedEntityTypeInfo>> dependencies,
+            BiConsumer<CachedEntityTypeInfo, Integer> task,
+            ExecutorService executor) {
+        CompletionService<CachedEntityTypeInfo> completionService = new ExecutorCompletionService<>(executor);
+        Set<CachedEntityTypeInfo> pending = new LinkedHashSet<>(plan.keySet());
+        Set<CachedEntityTypeInfo> done = new HashSet<>();
+        int running = 0;
+        while (!pending.isEmpty() || running > 0){
+            List<CachedEntityTypeInfo> ready = new ArrayList<>();
+            for (CachedEntityTypeInfo type : pending)
+                if(done.containsAll(dependencies.get(type))) ready.add(type);
+            if(ready.isEmpty() && running == 0){
+                //cyclic relationships - release the first remaining type to break the cycle
+                CachedEntityTypeInfo cycleBreaker = pending.iterator().next();
+                logger.warn("Cyclic relationship detected, populating " +
+                        cycleBreaker.getClazz().getSimpleName() + " before all of its dependencies");
+                ready.add(cycleBreaker);
+            }
+            for (CachedEntityTypeInfo type : ready){
+                pending.remove(type);
+                completionService.submit(() -> task.accept(type, plan.get(type)), type);
+                running++;
+            }
+            done.add(awaitNext(completionService));
+            running--;
+        }
+    }
+
+    private CachedEntityTypeInfo awaitNext(CompletionService<CachedEntityTypeInfo> completionService){
+        try {
+            return completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package dev.sanda.mockeri.generator;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+//entity types for which relationships are satisfied by existing rows rather than by generating new ones
+@Component
+public class ReferenceReusePolicy {
+    private final Set<Class<?>> reusableTypes = ConcurrentHashMap.newKeySet();
+    private volatile boolean reuseAll;
+
+    public void markReusable(Class<?> type){
+        reusableTypes.add(type);
+    }
+
+    public void markAllReusable(){
+        reuseAll = true;
+    }
+
+    public boolean isReusable(Class<?> type){
+        return reuseAll || (!reusableTypes.isEmpty() && reusableTypes.contains(type));
+    }
+
+    public void reset(){
+        reusableTypes.clear();
+        reuseAll = false;
+    }
+}
@@ -1,6 +1,5 @@
 package dev.sanda.mockeri.generator;
 
-import com.maximeroussy.invitrode.WordGenerator;
 import org.apache.commons.lang.RandomStringUtils;
 import dev.sanda.mockeri.meta.CollectionInstantiator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,8 +12,6 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.Month;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
@@ -42,34 +39,16 @@ public class TestDataGenerator {
     private List<String> paymentTypes = new ArrayList<>(Arrays.asList("Credit card", "Cash", "ACH"));
 
     public LocalDate pastDate(){
-        LocalDate start = LocalDate.of(1970, Month.JANUARY, 1);
-        long days = ChronoUnit.DAYS.between(start, LocalDate.now());
-        return start.plusDays(new Random().nextInt((int) days + 1));
+        return dateGenerator.getPastRange().localDate();
     }
     public LocalDate futureDate(){
-        LocalDate start = LocalDate.now();
-        long days = ChronoUnit.DAYS.between(start, LocalDateTime.from(LocalDate.of(2026, Month.JANUARY, 1)));
-        return start.plusDays(new Random().nextInt((int) days + 1));
+        return dateGenerator.getFutureRange().localDate();
     }
     public String dummyParagraph(){
-        StringBuilder dummyParagraph = new StringBuilder();
-        WordGenerator wordGenerator = new WordGenerator();
-        int lengthOfWord;
-        for (int i = 0; i < ThreadLocalRandom.current().nextInt(20, 30); i++) {
-            lengthOfWord = ThreadLocalRandom.current().nextInt(3, 10);
-            dummyParagraph.append(wordGenerator.newWord(lengthOfWord).toLowerCase()).append(" ");
-        }
-        return  dummyParagraph.toString();
+        return textGenerator.paragraph();
     }
     public String dummySentence(){
-        StringBuilder dummySentence = new StringBuilder();
-        WordGenerator wordGenerator = new WordGenerator();
-        int lengthOfWord;
-        for (int i = 0; i < ThreadLocalRandom.current().nextInt(7, 20); i++) {
-            lengthOfWord = ThreadLocalRandom.current().nextInt(3, 10);
-            dummySentence.append(wordGenerator.newWord(lengthOfWord).toLowerCase()).append(" ");
-        }
-        return  dummySentence.toString();
+        return textGenerator.sentence();
     }
     public String password(){return randomString(16);}
     public Double aDouble(double min, double max){
@@ -151,28 +130,18 @@ public class TestDataGenerator {
     }
 
     public LocalDateTime aLocalDateTime() {
-        LocalDateTime now = LocalDateTime.now();
-        int year = 60 * 60 * 24 * 365;
-        int numYears = ThreadLocalRandom.current().nextInt(-10, 15);
-        return now.plusSeconds((long) numYears * year);
-    }
-    private LocalDate aLocalDate(LocalDate start, LocalDate end) {
-        long days = ChronoUnit.DAYS.between(start, end);
-        return start
-                .plusDays(ThreadLocalRandom
-                        .current()
-                        .nextInt((int) days + 1));
+        return dateGenerator.getDefaultRange().localDateTime();
     }
 
     public LocalDate aLocalDate() {
-        return aLocalDate(LocalDate.now().minusYears(20), LocalDate.now().plusYears(20));
+        return dateGenerator.getDefaultRange().localDate();
     }
 
     public LocalDate aFutureLocalDate() {
-        return aLocalDate(LocalDate.now(), LocalDate.now().plusYears(20));
+        return dateGenerator.future(20).localDate();
     }
     public LocalDate aPastLocalDate() {
-        return aLocalDate(LocalDate.now(), LocalDate.now().minusYears(20));
+        return dateGenerator.past(20).localDate();
     }
 
     public String generateSecurePassword() {
@@ -201,6 +170,10 @@ public class TestDataGenerator {
     @Autowired
     private ResourceLoader resourceLoader;
     @Autowired
+    private TextGenerator textGenerator;
+    @Autowired
+    private DateGenerator dateGenerator;
+    @Autowired
     private CollectionInstantiator collectionInstantiator;
 
     public Collection<String> collectionOfStrings(Class<?> collectionType) {
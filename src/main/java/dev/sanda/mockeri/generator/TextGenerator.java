@@ -0,0 +1,118 @@
+package dev.sanda.mockeri.generator;
+
+import com.maximeroussy.invitrode.WordGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static dev.sanda.mockeri.StaticUtils.getBufferedReaderFor;
+
+//words are synthesized or read once at startup, text is then assembled from random picks out of the pool
+@Component
+public class TextGenerator {
+    public final static int UNBOUNDED = Integer.MAX_VALUE;
+
+    @Value("${mockeri.text.vocabulary-size:10000}")
+    private String vocabularySize;
+    //a classpath resource with one word per line, replaces the synthesized vocabulary
+    @Value("${mockeri.text.word-list:}")
+    private String wordList;
+    //word counts, max is exclusive
+    @Value("${mockeri.text.sentence-words:7-20}")
+    private String sentenceWords;
+    @Value("${mockeri.text.paragraph-words:20-30}")
+    private String paragraphWords;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    private String[] vocabulary;
+    private int minSentenceWords, maxSentenceWords, minParagraphWords, maxParagraphWords;
+    private final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(StringBuilder::new);
+
+    @PostConstruct
+    private void init(){
+        int[] sentenceRange = parseRange(sentenceWords);
+        minSentenceWords = sentenceRange[0];
+        maxSentenceWords = sentenceRange[1];
+        int[] paragraphRange = parseRange(paragraphWords);
+        minParagraphWords = paragraphRange[0];
+        maxParagraphWords = paragraphRange[1];
+        vocabulary = wordList.equals("") ? synthesizeVocabulary() : readVocabulary();
+    }
+
+    public String sentence(){
+        return text(minSentenceWords, maxSentenceWords, UNBOUNDED);
+    }
+
+    public String sentence(int maxLength){
+        return text(minSentenceWords, maxSentenceWords, maxLength);
+    }
+
+    public String paragraph(){
+        return text(minParagraphWords, maxParagraphWords, UNBOUNDED);
+    }
+
+    public String paragraph(int maxLength){
+        return text(minParagraphWords, maxParagraphWords, maxLength);
+    }
+
+    //words are dropped once the next one wouldn't fit, a single word longer than maxLength is cut short
+    public String text(int minWords, int maxWords, int maxLength){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder text = builders.get();
+        text.setLength(0);
+        int words = random.nextInt(minWords, maxWords);
+        for (int i = 0; i < words; i++) {
+            String word = vocabulary[random.nextInt(vocabulary.length)];
+            int separator = text.length() > 0 ? 1 : 0;
+            if(text.length() + separator + word.length() > maxLength){
+                if(text.length() == 0) text.append(word, 0, Math.min(word.length(), maxLength));
+                break;
+            }
+            if(separator > 0) text.append(' ');
+            text.append(word);
+        }
+        return text.toString();
+    }
+
+    private String[] synthesizeVocabulary(){
+        WordGenerator wordGenerator = new WordGenerator();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] words = new String[Math.max(1, Integer.parseInt(vocabularySize))];
+        for (int i = 0; i < words.length; i++)
+            words[i] = wordGenerator.newWord(random.nextInt(3, 10)).toLowerCase();
+        return words;
+    }
+
+    private String[] readVocabulary(){
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = getBufferedReaderFor(wordList, resourceLoader)) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                if(!line.trim().equals("")) words.add(line.trim());
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+        if(words.isEmpty()) throw new IllegalArgumentException("Word list " + wordList + " is empty");
+        return words.toArray(new String[0]);
+    }
+
+    private int[] parseRange(String range){
+        String[] bounds = range.split("-");
+        int min = Integer.parseInt(bounds[0].trim());
+        int max = Integer.parseInt(bounds[bounds.length - 1].trim());
+        if(min < 1 || max <= min)
+            throw new IllegalArgumentException("Invalid word count range: " + range);
+        return new int[]{min, max};
+    }
+}
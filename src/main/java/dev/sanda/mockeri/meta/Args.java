@@ -1,7 +0,0 @@
-package dev.sanda.mockeri.meta;
-
-public class Args {
-    public final static String NON_NULLABLE_ONLY = "NON_NULLABLE_ONLY";
-    public final static String NO_PERSIST = "NO_PERSIST";
-    public final static String INSTANTIATION_STACK = "INSTANTIATION_STACK";
-}
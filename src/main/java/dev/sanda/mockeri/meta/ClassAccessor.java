@@ -0,0 +1,32 @@
+package dev.sanda.mockeri.meta;
+
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@SuppressWarnings("unchecked")
+public class ClassAccessor {
+    @Getter
+    private final Class<?> type;
+    private final Supplier<Object> constructor;
+    private final Map<Field, FieldAccessor> fields;
+
+    public ClassAccessor(Class<?> type, Supplier<Object> constructor, Map<Field, FieldAccessor> fields) {
+        this.type = type;
+        this.constructor = constructor;
+        this.fields = fields;
+    }
+
+    public <T> T newInstance(){
+        return (T) constructor.get();
+    }
+
+    public FieldAccessor field(Field field){
+        FieldAccessor accessor = fields.get(field);
+        if(accessor == null)
+            throw new IllegalArgumentException("No field " + field.getName() + " in " + type.getSimpleName());
+        return accessor;
+    }
+}
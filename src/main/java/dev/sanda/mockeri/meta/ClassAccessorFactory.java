@@ -0,0 +1,196 @@
+package dev.sanda.mockeri.meta;
+
+import org.apache.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static dev.sanda.datafi.DatafiStaticUtils.toPascalCase;
+import static dev.sanda.datafi.reflection.CachedEntityTypeInfo.genDefaultInstance;
+import static dev.sanda.datafi.reflection.ReflectionCache.getClassFields;
+
+//constructors, getters and setters bound once per class, public members are bound to lambdas and anything else to method handles
+@Component
+@SuppressWarnings("unchecked")
+public class ClassAccessorFactory {
+    private final static Logger logger = Logger.getLogger(ClassAccessorFactory.class);
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private final Map<Class<?>, ClassAccessor> cache = new ConcurrentHashMap<>();
+
+    public ClassAccessor classAccessor(Class<?> type){
+        ClassAccessor accessor = cache.get(type);
+        if(accessor == null){
+            accessor = build(type);
+            cache.put(type, accessor);
+        }
+        return accessor;
+    }
+
+    public FieldAccessor fieldAccessor(Field field){
+        return classAccessor(field.getDeclaringClass()).field(field);
+    }
+
+    private ClassAccessor build(Class<?> type){
+        Map<Field, FieldAccessor> fields = new HashMap<>();
+        if(!type.getName().startsWith("java."))
+            for (Field field : getClassFields(type))
+                fields.put(field, Modifier.isStatic(field.getModifiers())
+                        ? staticFieldAccessor(field)
+                        : new FieldAccessor(field, getter(type, field), setter(type, field)));
+        return new ClassAccessor(type, constructor(type), Collections.unmodifiableMap(fields));
+    }
+
+    private Supplier<Object> constructor(Class<?> type){
+        if(type.isInterface() || Modifier.isAbstract(type.getModifiers()))
+            return () -> {
+                throw new IllegalStateException("Cannot instantiate abstract type " + type.getSimpleName());
+            };
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            if(isPublic(type, constructor.getModifiers()) && isVisible(type)){
+                MethodHandle handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+                Supplier<Object> bound = bindLambda(Supplier.class, "get", handle, MethodType.methodType(type));
+                if(bound != null) return bound;
+            }
+            constructor.setAccessible(true);
+            MethodHandle handle = lookup.unreflectConstructor(constructor);
+            return () -> {
+                try {
+                    return handle.invoke();
+                } catch (Throwable throwable) {
+                    throwable.printStackTrace();
+                    throw new RuntimeException(throwable);
+                }
+            };
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return () -> genDefaultInstance(type);
+        }
+    }
+
+    private Function<Object, Object> getter(Class<?> type, Field field){
+        Method method = publicMethod(type, "get" + toPascalCase(field.getName()));
+        if(method == null && (field.getType().equals(boolean.class)))
+            method = publicMethod(type, "is" + toPascalCase(field.getName()));
+        try {
+            if(method != null && method.getReturnType().equals(field.getType()) && isVisible(type, field.getType())){
+                Function<Object, Object> bound = bindLambda(Function.class, "apply", lookup.unreflect(method),
+                        MethodType.methodType(wrap(field.getType()), type));
+                if(bound != null) return bound;
+            }
+            field.setAccessible(true);
+            MethodHandle handle = lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+            return instance -> {
+                try {
+                    return handle.invokeExact(instance);
+                } catch (Throwable throwable) {
+                    throwable.printStackTrace();
+                    throw new RuntimeException(throwable);
+                }
+            };
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private BiConsumer<Object, Object> setter(Class<?> type, Field field){
+        Method method = publicMethod(type, "set" + toPascalCase(field.getName()), field.getType());
+        try {
+            if(method != null && isVisible(type, field.getType())){
+                BiConsumer<Object, Object> bound = bindLambda(BiConsumer.class, "accept", lookup.unreflect(method),
+                        MethodType.methodType(void.class, type, wrap(field.getType())));
+                if(bound != null) return bound;
+            }
+            if(Modifier.isFinal(field.getModifiers())) return (instance, value) -> {
+                throw new IllegalStateException("Cannot assign final field " + field.getName());
+            };
+            field.setAccessible(true);
+            MethodHandle handle = lookup.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return (instance, value) -> {
+                try {
+                    handle.invokeExact(instance, value);
+                } catch (Throwable throwable) {
+                    throwable.printStackTrace();
+                    throw new RuntimeException(throwable);
+                }
+            };
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private FieldAccessor staticFieldAccessor(Field field){
+        field.setAccessible(true);
+        return new FieldAccessor(field, instance -> {
+            try {
+                return field.get(null);
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+                throw new RuntimeException(e);
+            }
+        }, (instance, value) -> {
+            try {
+                field.set(null, value);
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private <T> T bindLambda(Class<T> functionalInterface, String methodName, MethodHandle target, MethodType instantiatedType){
+        try {
+            MethodType samType = instantiatedType.erase().changeReturnType(
+                    instantiatedType.returnType().equals(void.class) ? void.class : Object.class);
+            CallSite site = LambdaMetafactory.metafactory(
+                    lookup, methodName, MethodType.methodType(functionalInterface), samType, target, instantiatedType);
+            return (T) site.getTarget().invoke();
+        } catch (Throwable throwable) {
+            logger.debug("Falling back to a method handle for " + target, throwable);
+            return null;
+        }
+    }
+
+    //lambdas are spun in this class loader, so everything they touch has to be reachable from it
+    private boolean isVisible(Class<?>... types){
+        for (Class<?> type : types) {
+            if(type.isPrimitive()) continue;
+            try {
+                if(Class.forName(type.getName(), false, ClassAccessorFactory.class.getClassLoader()) != type) return false;
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Method publicMethod(Class<?> type, String name, Class<?>... parameterTypes){
+        try {
+            Method method = type.getMethod(name, parameterTypes);
+            return isPublic(method.getDeclaringClass(), method.getModifiers()) ? method : null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private boolean isPublic(Class<?> type, int modifiers){
+        return Modifier.isPublic(modifiers) && Modifier.isPublic(type.getModifiers());
+    }
+
+    private Class<?> wrap(Class<?> type){
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
@@ -13,6 +13,7 @@ import java.net.URL;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.stream.Collectors;
@@ -24,9 +25,11 @@ import static dev.sanda.datafi.reflection.CachedEntityTypeInfo.genDefaultInstanc
 public class CollectionInstantiator {
     @Autowired
     private ReflectionCache reflectionCache;
+    @Autowired
+    private ClassAccessorFactory classAccessorFactory;
     private Reflections javaUtils = new Reflections("java.util");
     private Map<Class<? extends Collection>, List<Class<? extends Collection>>> collectionTypes = new HashMap<>();
-    private Map<Map.Entry<Class<?>, Class<?>>, Class<?>> cache = new HashMap<>();
+    private Map<Map.Entry<Class<?>, Class<?>>, Class<?>> cache = new ConcurrentHashMap<>();
 
     @PostConstruct
     private void init(){
@@ -46,7 +49,7 @@ public class CollectionInstantiator {
     public Collection instantiateCollection(Class<?> collectionType, Class<?> collectableType){
         final Map.Entry<Class<?>, Class<?>> key = immutableEntry(collectionType, collectableType);
         if(cache.get(key) != null){
-            return (Collection) genDefaultInstance(cache.get(key));
+            return classAccessorFactory.classAccessor(cache.get(key)).newInstance();
         }
         if(collectableType.equals(Collection.class)) return new ArrayList();
 
@@ -0,0 +1,52 @@
+package dev.sanda.mockeri.meta;
+
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.function.Function;
+
+@Getter
+public class ColumnMapping {
+    public enum Kind {
+        BASIC, ENUM_ORDINAL, ENUM_STRING, REFERENCE
+    }
+    private final String name;
+    private final Field field;
+    private final FieldAccessor accessor;
+    private final Kind kind;
+    private final int sqlType;
+
+    public ColumnMapping(String name, FieldAccessor accessor, Kind kind, int sqlType) {
+        this.name = name;
+        this.field = accessor.getField();
+        this.accessor = accessor;
+        this.kind = kind;
+        this.sqlType = sqlType;
+    }
+
+    public Object read(Object instance){
+        return accessor.get(instance);
+    }
+
+    //the value as it is stored in the column, references are resolved to the referenced id
+    public Object columnValue(Object instance, Function<Object, Object> idOf){
+        Object value = read(instance);
+        if(value == null) return null;
+        switch (kind){
+            case REFERENCE: return idOf.apply(value);
+            case ENUM_STRING: return ((Enum<?>) value).name();
+            case ENUM_ORDINAL: return ((Enum<?>) value).ordinal();
+        }
+        if(value instanceof URL || value instanceof Character) return value.toString();
+        if(value instanceof org.joda.time.LocalDate)
+            return new Date(((org.joda.time.LocalDate) value).toDate().getTime());
+        if(value instanceof org.joda.time.LocalDateTime)
+            return new Timestamp(((org.joda.time.LocalDateTime) value).toDate().getTime());
+        if(value instanceof Instant) return Timestamp.from((Instant) value);
+        return value;
+    }
+}
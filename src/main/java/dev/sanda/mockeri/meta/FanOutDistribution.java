@@ -0,0 +1,8 @@
+package dev.sanda.mockeri.meta;
+
+public enum FanOutDistribution {
+    FIXED,
+    UNIFORM,
+    POISSON,
+    GEOMETRIC
+}
@@ -0,0 +1,131 @@
+package dev.sanda.mockeri.meta;
+
+import dev.sanda.mockeri.annotations.FanOut;
+import lombok.Getter;
+
+import java.util.Random;
+
+import static dev.sanda.mockeri.meta.FanOutDistribution.*;
+
+//number of entities generated per foreign key collection, sampled once per collection
+@Getter
+public class FanOutPolicy {
+    public final static FanOutPolicy DEFAULT = uniform(5, 10);
+
+    private final FanOutDistribution distribution;
+    private final int min;
+    //exclusive
+    private final int max;
+    private final double mean;
+
+    private FanOutPolicy(FanOutDistribution distribution, int min, int max, double mean) {
+        if(min < 0 || max <= min)
+            throw new IllegalArgumentException("Invalid fan out range: " + min + " - " + max);
+        if(mean < 0)
+            throw new IllegalArgumentException("Invalid fan out mean: " + mean);
+        this.distribution = distribution;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+    }
+
+    public static FanOutPolicy fixed(int size){
+        return new FanOutPolicy(FIXED, size, size + 1, size);
+    }
+
+    public static FanOutPolicy uniform(int min, int max){
+        return new FanOutPolicy(UNIFORM, min, max, (min + max - 1) / 2.0);
+    }
+
+    public static FanOutPolicy poisson(double mean){
+        return poisson(mean, Integer.MAX_VALUE);
+    }
+
+    public static FanOutPolicy poisson(double mean, int max){
+        return new FanOutPolicy(POISSON, 0, max, mean);
+    }
+
+    public static FanOutPolicy geometric(double mean){
+        return geometric(mean, Integer.MAX_VALUE);
+    }
+
+    public static FanOutPolicy geometric(double mean, int max){
+        return new FanOutPolicy(GEOMETRIC, 0, max, mean);
+    }
+
+    public static FanOutPolicy of(FanOut fanOut){
+        if(fanOut.value() >= 0) return fixed(fanOut.value());
+        int max = fanOut.max() >= 0 ? fanOut.max() : Integer.MAX_VALUE;
+        switch (fanOut.distribution()){
+            case FIXED: return fixed(Math.max(0, fanOut.min()));
+            case POISSON: return poisson(fanOut.mean(), max);
+            case GEOMETRIC: return geometric(fanOut.mean(), max);
+            //a single bound given outside the default range moves the other one along with it
+            default: return uniform(
+                    fanOut.min() >= 0 ? fanOut.min() : Math.max(0, Math.min(DEFAULT.min, fanOut.max() - 1)),
+                    fanOut.max() >= 0 ? fanOut.max() : Math.max(DEFAULT.max, fanOut.min() + 1));
+        }
+    }
+
+    //fixed(3), uniform(0,4), poisson(2.5), poisson(2.5,10), geometric(1.5) or geometric(1.5,10)
+    public static FanOutPolicy parse(String spec){
+        String trimmed = spec.trim();
+        int open = trimmed.indexOf('(');
+        if(open < 0 || !trimmed.endsWith(")"))
+            throw new IllegalArgumentException("Invalid fan out: " + spec);
+        String[] args = trimmed.substring(open + 1, trimmed.length() - 1).split(",");
+        try {
+            switch (FanOutDistribution.valueOf(trimmed.substring(0, open).trim().toUpperCase())){
+                case FIXED: return fixed(Integer.parseInt(args[0].trim()));
+                case UNIFORM: return uniform(Integer.parseInt(args[0].trim()), Integer.parseInt(args[1].trim()));
+                case POISSON: return args.length > 1
+                        ? poisson(Double.parseDouble(args[0].trim()), Integer.parseInt(args[1].trim()))
+                        : poisson(Double.parseDouble(args[0].trim()));
+                default: return args.length > 1
+                        ? geometric(Double.parseDouble(args[0].trim()), Integer.parseInt(args[1].trim()))
+                        : geometric(Double.parseDouble(args[0].trim()));
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e){
+            throw new IllegalArgumentException("Invalid fan out: " + spec, e);
+        }
+    }
+
+    public int sample(Random random){
+        switch (distribution){
+            case FIXED: return min;
+            case UNIFORM: return min + random.nextInt(max - min);
+            case POISSON: return Math.min(poisson(random), max - 1);
+            default: return Math.min(geometric(random), max - 1);
+        }
+    }
+
+    private int poisson(Random random){
+        if(mean == 0) return 0;
+        //normal approximation once the product below would underflow
+        if(mean > 30) return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+        double limit = Math.exp(-mean), product = random.nextDouble();
+        int count = 0;
+        while (product > limit){
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    //number of failures before the first success, with success probability 1 / (1 + mean)
+    private int geometric(Random random){
+        if(mean == 0) return 0;
+        double sample = Math.floor(Math.log(1 - random.nextDouble()) / Math.log(mean / (1 + mean)));
+        return (int) Math.min(sample, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public String toString(){
+        switch (distribution){
+            case FIXED: return "fixed(" + min + ")";
+            case UNIFORM: return "uniform(" + min + "," + max + ")";
+            default: return distribution.name().toLowerCase() + "(" + mean +
+                    (max == Integer.MAX_VALUE ? "" : "," + max) + ")";
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package dev.sanda.mockeri.meta;
+
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+public class FieldAccessor {
+    @Getter
+    private final Field field;
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    public FieldAccessor(Field field, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+        this.field = field;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public Object get(Object instance){
+        return getter.apply(instance);
+    }
+
+    public void set(Object instance, Object value){
+        setter.accept(instance, value);
+    }
+}
@@ -7,6 +7,8 @@ public class FieldMetaInfo {
     private boolean toInstantiate;
     private boolean isOptional;
     private boolean isUpdatable;
+    //not instantiated, but left with an empty collection
+    private boolean initEmptyCollection;
     private FieldReferenceType fieldReferenceType;
     private MockDataSource mockDataSource;
     private Object parent;
@@ -13,14 +13,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.persistence.*;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static dev.sanda.datafi.reflection.ReflectionCache.getClassFields;
 import static dev.sanda.mockeri.StaticUtils.collectibleType;
 import static dev.sanda.mockeri.StaticUtils.isEmbeddedEntity;
+import static dev.sanda.mockeri.StaticUtils.isId;
 import static dev.sanda.mockeri.meta.CircularReferenceException.*;
 import static dev.sanda.mockeri.meta.FieldReferenceType.*;
 import static dev.sanda.mockeri.meta.MockDataSource.*;
@@ -31,12 +33,14 @@ public class FieldMetaInfoFactory {
     private ReflectionCache reflectionCache;
     @Autowired
     private CollectionInstantiator collectionInstantiator;
-    private Map<Field, FieldMetaInfo> cache = new HashMap<>();
+    @Autowired
+    private ClassAccessorFactory classAccessorFactory;
+    private Map<Field, FieldMetaInfo> cache = new ConcurrentHashMap<>();
 
     public FieldMetaInfo fieldMetaInfo(Object parent, Field field){
         if(cache.get(field) != null) return cache.get(field);
         FieldMetaInfo fieldMetaInfo = new FieldMetaInfo();
-        fieldMetaInfo.setToInstantiate(determineInstantiationStatus(field, parent));
+        fieldMetaInfo.setToInstantiate(determineInstantiationStatus(field, parent, fieldMetaInfo));
         fieldMetaInfo.setOptional(determineOptionality(field));
         fieldMetaInfo.setUpdatable(determineUpdatability(field, parent));
         if(!fieldMetaInfo.isToInstantiate()) return fieldMetaInfo;
@@ -75,6 +79,8 @@ public class FieldMetaInfoFactory {
         if(!mockData.keyword().equals(KeyWord.NULL)) return KEYWORD;
         if(ofSetIsNotEmpty(mockData)) return OF_SET;
         if(mockData.max() != -1 && mockData.min() != -1 && mockData.max() > mockData.min()) return MIN_MAX_RANGE;
+        //only narrows the default date range
+        if(mockData.years() > 0) return DEFAULT;
         throw new IllegalArgumentException(
                 "Cannot determine data mocking strategy for " + field.getDeclaringClass().getSimpleName() +
                 "." + field.getName());
@@ -94,7 +100,11 @@ public class FieldMetaInfoFactory {
         return SINGLE_PRIMITIVE;
     }
 
-    private boolean determineInstantiationStatus(Field field, Object parent) {
+    private boolean determineInstantiationStatus(Field field, Object parent, FieldMetaInfo fieldMetaInfo) {
+        //left unset so the entity is persisted as new and the database assigns it
+        if(isId(field) && field.isAnnotationPresent(GeneratedValue.class)) return false;
+        //maintained by the persistence provider
+        if(field.isAnnotationPresent(Version.class)) return false;
         if(isAlreadyInitialized(field, parent)) return false;
         if(!isEmbeddedEntity(field, reflectionCache)) return true;
         if(field.isAnnotationPresent(NonMockable.class)) return false;
@@ -121,6 +131,7 @@ public class FieldMetaInfoFactory {
                             field, collectionType, parent, backPointer);
                 }
                 initEmptyCollection(field, parent);
+                fieldMetaInfo.setInitEmptyCollection(true);
                 return false;
             }
         }
@@ -134,6 +145,7 @@ public class FieldMetaInfoFactory {
                     throwManyToManyCircularReferenceException(
                         field, collectionType, parent, backPointer);
                 initEmptyCollection(field, parent);
+                fieldMetaInfo.setInitEmptyCollection(true);
                 return false;
             }
 
@@ -211,17 +223,14 @@ public class FieldMetaInfoFactory {
     }
 
     private void initEmptyCollection(Field field, Object parent) {
-        try{
-            field.setAccessible(true);
-            field.set(parent, collectionInstantiator.instantiateCollection(field.getType(), collectibleType(field, reflectionCache)));
-        }catch (Exception e){
-            e.printStackTrace();
-throw new RuntimeException(e);
-        }
+        classAccessorFactory.fieldAccessor(field).set(
+                parent, collectionInstantiator.instantiateCollection(field.getType(), collectibleType(field, reflectionCache)));
     }
 
+    //a primitive can't be null, so one still at its default value counts as unset
     private boolean isAlreadyInitialized(Field field, Object parent) {
-        return reflectionCache.getEntitiesCache().get(parent.getClass()
-            .getSimpleName()).invokeGetter(parent, field.getName()) != null;
+        Object value = classAccessorFactory.fieldAccessor(field).get(parent);
+        if(value == null) return false;
+        return !field.getType().isPrimitive() || !value.equals(Array.get(Array.newInstance(field.getType(), 1), 0));
     }
 }
@@ -0,0 +1,20 @@
+package dev.sanda.mockeri.meta;
+
+import lombok.Getter;
+
+//the database sequence hibernate draws SEQUENCE and AUTO generated ids from
+@Getter
+public class IdSequence {
+    public final static String DEFAULT_SEQUENCE = "hibernate_sequence";
+
+    private final String name;
+    private final long initialValue;
+    //ids handed out per value read, above 1 hibernate's pooled optimizer is used
+    private final int allocationSize;
+
+    public IdSequence(String name, long initialValue, int allocationSize) {
+        this.name = name;
+        this.initialValue = initialValue;
+        this.allocationSize = allocationSize;
+    }
+}
@@ -0,0 +1,27 @@
+package dev.sanda.mockeri.meta;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+
+@Getter
+public class JoinTableMapping {
+    private final String tableName;
+    private final String ownerColumn;
+    private final String targetColumn;
+    //the owning collection
+    private final FieldAccessor accessor;
+
+    public JoinTableMapping(String tableName, String ownerColumn, String targetColumn, FieldAccessor accessor) {
+        this.tableName = tableName;
+        this.ownerColumn = ownerColumn;
+        this.targetColumn = targetColumn;
+        this.accessor = accessor;
+    }
+
+    public Collection<?> targets(Object owner){
+        Collection<?> targets = (Collection<?>) accessor.get(owner);
+        return targets != null ? targets : Collections.emptyList();
+    }
+}
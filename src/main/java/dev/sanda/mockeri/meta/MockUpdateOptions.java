@@ -0,0 +1,37 @@
+package dev.sanda.mockeri.meta;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+//which updatable fields mockUpdate generates values for, all of them by default
+@Getter
+public class MockUpdateOptions {
+    private Set<String> fieldNames = Collections.emptySet();
+    private boolean skipRelationships;
+    //updated copies mockUpdates makes
+    private int quantity = 1;
+
+    public MockUpdateOptions quantity(int quantity){
+        if(quantity < 1) throw new IllegalArgumentException("Update quantity must be at least 1, got " + quantity);
+        this.quantity = quantity;
+        return this;
+    }
+
+    public MockUpdateOptions fields(String... fieldNames){
+        this.fieldNames = new HashSet<>(Arrays.asList(fieldNames));
+        return this;
+    }
+
+    public MockUpdateOptions skipRelationships(){
+        this.skipRelationships = true;
+        return this;
+    }
+
+    public boolean includes(String fieldName){
+        return fieldNames.isEmpty() || fieldNames.contains(fieldName);
+    }
+}
@@ -0,0 +1,208 @@
+package dev.sanda.mockeri.meta;
+
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static com.google.common.collect.Maps.immutableEntry;
+
+//state of a single mocking call, reused across calls on the same thread
+public class MockingContext {
+    //entity types currently being instantiated, from the root down
+    private final Set<Class<?>> path = Collections.newSetFromMap(new IdentityHashMap<>());
+    @Getter
+    private int depth;
+    @Getter
+    private boolean persist = true;
+    //overrides the default fan out of relationships that don't configure their own
+    @Getter
+    private FanOutPolicy fanOut;
+    private Random random;
+    //set when seeded, each fork splits its own seed off it so no Random is shared between threads
+    private SplittableRandom seeds;
+    //set on contexts forked onto generation threads, these hand anything touching the database back to the owning thread
+    private BlockingQueue<Runnable> ownerTasks;
+    private boolean forked;
+    private boolean deferPersistence;
+    //instances generated on a forked context, children before parents, persisted by the owning thread
+    private final List<Map.Entry<Class<?>, Object>> deferred = new ArrayList<>();
+
+    public static MockingContext persistent(){
+        return new MockingContext();
+    }
+
+    public static MockingContext transientInstances(){
+        return new MockingContext().persist(false);
+    }
+
+    public MockingContext persist(boolean persist){
+        this.persist = persist;
+        return this;
+    }
+
+    //generated instances are collected rather than persisted, for whoever drains them to write later,
+    //existing rows come back as stand-ins carrying only their id, for the writer to link
+    public MockingContext deferPersistence(boolean deferPersistence){
+        this.deferPersistence = deferPersistence;
+        return this;
+    }
+
+    //number of entities generated per foreign key collection, max is exclusive
+    public MockingContext fanOut(int min, int max){
+        return fanOut(FanOutPolicy.uniform(min, max));
+    }
+
+    public MockingContext fanOut(FanOutPolicy fanOut){
+        this.fanOut = fanOut;
+        return this;
+    }
+
+    //makes the shape of the generated graph repeatable
+    public MockingContext seed(long seed){
+        this.seeds = new SplittableRandom(seed);
+        this.random = new Random(seeds.nextLong());
+        return this;
+    }
+
+    public MockingContext reset(){
+        path.clear();
+        depth = 0;
+        persist = true;
+        fanOut = null;
+        random = null;
+        seeds = null;
+        ownerTasks = null;
+        deferPersistence = false;
+        deferred.clear();
+        return this;
+    }
+
+    public boolean isActive(){
+        return depth > 0;
+    }
+
+    public boolean isRoot(){
+        return depth == 0;
+    }
+
+    public boolean isOnPath(Class<?> type){
+        return path.contains(type);
+    }
+
+    public void enter(Class<?> type){
+        path.add(type);
+        depth++;
+    }
+
+    public void exit(Class<?> type){
+        path.remove(type);
+        depth--;
+    }
+
+    //a copy for generating an independent subgraph on another thread
+    public MockingContext fork(){
+        MockingContext fork = new MockingContext();
+        fork.path.addAll(path);
+        fork.depth = depth;
+        fork.persist = persist;
+        fork.deferPersistence = deferPersistence;
+        fork.fanOut = fanOut;
+        if(seeds != null){
+            fork.seeds = seeds.split();
+            fork.random = new Random(fork.seeds.nextLong());
+        }
+        if(ownerTasks == null) ownerTasks = new LinkedBlockingQueue<>();
+        fork.ownerTasks = ownerTasks;
+        fork.forked = true;
+        return fork;
+    }
+
+    public boolean isForked(){
+        return forked;
+    }
+
+    public boolean isPersistenceDeferred(){
+        return deferPersistence;
+    }
+
+    public boolean isDeferring(){
+        return forked || deferPersistence;
+    }
+
+    public void defer(Class<?> type, Object instance){
+        deferred.add(immutableEntry(type, instance));
+    }
+
+    //takes over what a joined fork deferred, keeping it ahead of anything deferred here later
+    public void absorb(MockingContext fork){
+        deferred.addAll(fork.deferred);
+        fork.deferred.clear();
+    }
+
+    public List<Map.Entry<Class<?>, Object>> drainDeferred(){
+        List<Map.Entry<Class<?>, Object>> drained = new ArrayList<>(deferred);
+        deferred.clear();
+        return drained;
+    }
+
+    public <T> T onOwnerThread(Supplier<T> task){
+        if(!forked) return task.get();
+        FutureTask<T> future = new FutureTask<>(task::get);
+        ownerTasks.add(future);
+        try {
+            //a generation thread waiting here lets its pool start another one in its place
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        //rethrown below
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return future.isDone();
+                }
+            });
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    //called by the owning thread while its forks run, only after forking
+    public void runOwnerTasksUntil(BooleanSupplier done){
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    Runnable task = ownerTasks.poll(1, TimeUnit.MILLISECONDS);
+                    if(task != null) task.run();
+                    return done.getAsBoolean();
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return done.getAsBoolean();
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Random random(){
+        return random != null ? random : ThreadLocalRandom.current();
+    }
+}
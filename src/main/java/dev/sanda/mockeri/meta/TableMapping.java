@@ -0,0 +1,87 @@
+package dev.sanda.mockeri.meta;
+
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Getter
+public class TableMapping {
+    private final Class<?> entityType;
+    private final String tableName;
+    private final Field idField;
+    private final FieldAccessor idAccessor;
+    private final String idColumn;
+    private final boolean generatedId;
+    //null unless the id is drawn from a sequence, it's then written as a column like any other
+    private final IdSequence idSequence;
+    //null unless the type has a @Version field
+    private final FieldAccessor versionAccessor;
+    //every column written on insert, the id column is left out when the database generates it
+    private final List<ColumnMapping> columns;
+    //every column of the table including a generated id
+    private final List<ColumnMapping> allColumns;
+    //join tables of the collections this type owns
+    private final List<JoinTableMapping> joinTables;
+    //null if the type can be mapped, otherwise why it can't
+    private final String unsupportedReason;
+    //null if every persistent field has a column or a join table above, otherwise one that doesn't
+    private final String incompleteReason;
+    private final Map<Integer, String> insertStatements = new ConcurrentHashMap<>();
+
+    public TableMapping(Class<?> entityType, String tableName, FieldAccessor idAccessor, String idColumn,
+                        boolean generatedId, IdSequence idSequence, FieldAccessor versionAccessor,
+                        List<ColumnMapping> columns, List<JoinTableMapping> joinTables,
+                        String unsupportedReason, String incompleteReason) {
+        this.entityType = entityType;
+        this.tableName = tableName;
+        this.idField = idAccessor != null ? idAccessor.getField() : null;
+        this.idAccessor = idAccessor;
+        this.idColumn = idColumn;
+        this.generatedId = generatedId;
+        this.idSequence = idSequence;
+        this.versionAccessor = versionAccessor;
+        this.columns = columns;
+        this.allColumns = new ArrayList<>(columns);
+        if(generatedId)
+            allColumns.add(0, new ColumnMapping(
+                    idColumn, idAccessor, ColumnMapping.Kind.BASIC, TableMappingFactory.sqlType(idField.getType())));
+        this.joinTables = joinTables;
+        this.unsupportedReason = unsupportedReason;
+        this.incompleteReason = incompleteReason;
+    }
+
+    public boolean isSupported(){
+        return unsupportedReason == null;
+    }
+
+    public boolean isComplete(){
+        return incompleteReason == null;
+    }
+
+    //the version hibernate starts a persisted entity at, unless the instance already has one
+    public void seedVersion(Object instance){
+        if(versionAccessor == null || versionAccessor.get(instance) != null) return;
+        versionAccessor.set(instance, TableMappingFactory.initialVersion(versionAccessor.getField().getType()));
+    }
+
+    public String insertStatement(int rows){
+        return insertStatements.computeIfAbsent(rows, this::buildInsertStatement);
+    }
+
+    private String buildInsertStatement(int rows){
+        String columnNames = columns.stream().map(ColumnMapping::getName).collect(Collectors.joining(", "));
+        String placeholders = columns.stream().map(column -> "?").collect(Collectors.joining(", ", "(", ")"));
+        StringBuilder statement = new StringBuilder("INSERT INTO ")
+                .append(tableName).append(" (").append(columnNames).append(") VALUES ");
+        for (int i = 0; i < rows; i++) {
+            if(i > 0) statement.append(", ");
+            statement.append(placeholders);
+        }
+        return statement.toString();
+    }
+}
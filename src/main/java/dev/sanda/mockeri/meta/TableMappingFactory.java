@@ -0,0 +1,276 @@
+package dev.sanda.mockeri.meta;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static dev.sanda.datafi.reflection.ReflectionCache.getClassFields;
+import static dev.sanda.mockeri.StaticUtils.isId;
+
+@Component
+public class TableMappingFactory {
+    @Autowired
+    private ClassAccessorFactory classAccessorFactory;
+    private Map<Class<?>, TableMapping> cache = new ConcurrentHashMap<>();
+
+    public TableMapping tableMapping(Class<?> clazz){
+        TableMapping mapping = cache.get(clazz);
+        if(mapping == null){
+            mapping = mapTable(clazz);
+            cache.put(clazz, mapping);
+        }
+        return mapping;
+    }
+
+    private TableMapping mapTable(Class<?> clazz){
+        String tableName = clazz.isAnnotationPresent(Table.class) && !clazz.getAnnotation(Table.class).name().equals("")
+                ? clazz.getAnnotation(Table.class).name()
+                : toSnakeCase(clazz.getSimpleName());
+        Field idField = null;
+        boolean generatedId = false;
+        IdSequence idSequence = null;
+        Field versionField = null;
+        List<ColumnMapping> columns = new ArrayList<>();
+        List<Field> joinTableFields = new ArrayList<>();
+        String unsupportedReason = null;
+        //set when some persistent field has neither a column nor a join table in the mapping
+        String incompleteReason = null;
+        if(clazz.getSuperclass() != null && clazz.getSuperclass().isAnnotationPresent(Entity.class))
+            unsupportedReason = incompleteReason = "entity inheritance";
+        for (Field field : getClassFields(clazz)) {
+            if(Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) ||
+               field.isAnnotationPresent(Transient.class))
+                continue;
+            if(isId(field)){
+                idField = field;
+                if(field.isAnnotationPresent(EmbeddedId.class))
+                    unsupportedReason = incompleteReason = "embedded id " + field.getName();
+                else if(field.isAnnotationPresent(GeneratedValue.class)){
+                    GenerationType strategy = field.getAnnotation(GeneratedValue.class).strategy();
+                    if(strategy == GenerationType.IDENTITY || strategy == GenerationType.TABLE || !isIntegral(field.getType())){
+                        if(strategy != GenerationType.IDENTITY)
+                            unsupportedReason = strategy.name().toLowerCase() + " id generation for " + field.getName();
+                        generatedId = true;
+                        continue;
+                    }
+                    //drawn ahead of the insert, so the id is bound like any other column
+                    idSequence = idSequence(clazz, field);
+                }
+                columns.add(basicColumn(field));
+                continue;
+            }
+            if(isJoinTable(field)){
+                //written by the owner, but not by a single insert into its own table
+                unsupportedReason = "join table " + field.getName();
+                joinTableFields.add(field);
+                continue;
+            }
+            if(field.isAnnotationPresent(Version.class)){
+                versionField = field;
+                if(initialVersion(field.getType()) == null)
+                    unsupportedReason = "version type " + field.getType().getSimpleName() + " of " + field.getName();
+            }
+            String reason = unsupportedFieldReason(field);
+            if(reason != null){
+                unsupportedReason = incompleteReason = reason;
+                continue;
+            }
+            if(field.isAnnotationPresent(OneToMany.class) ||
+              (field.isAnnotationPresent(OneToOne.class) && !field.getAnnotation(OneToOne.class).mappedBy().equals("")) ||
+               field.isAnnotationPresent(ManyToMany.class))
+                continue;//inverse side, written by the owner
+            if(field.isAnnotationPresent(ManyToOne.class) || field.isAnnotationPresent(OneToOne.class))
+                columns.add(referenceColumn(field));
+            else if(field.getType().isEnum())
+                columns.add(enumColumn(field));
+            else
+                columns.add(basicColumn(field));
+        }
+        if(idField == null) unsupportedReason = incompleteReason = "no id field";
+        String idColumn = idField != null ? columnName(idField) : null;
+        FieldAccessor idAccessor = idField != null ? classAccessorFactory.fieldAccessor(idField) : null;
+        List<JoinTableMapping> joinTables = new ArrayList<>();
+        for (Field field : joinTableFields) {
+            JoinTableMapping joinTable = idField != null ? joinTable(clazz, tableName, idColumn, field) : null;
+            if(joinTable != null) joinTables.add(joinTable);
+            else incompleteReason = "join table " + field.getName();
+        }
+        FieldAccessor versionAccessor = versionField != null ? classAccessorFactory.fieldAccessor(versionField) : null;
+        return new TableMapping(clazz, tableName, idAccessor, idColumn, generatedId, idSequence, versionAccessor,
+                columns, joinTables, unsupportedReason, incompleteReason);
+    }
+
+    //as hibernate resolves it, a generator without a @SequenceGenerator of its name uses the default sequence
+    private IdSequence idSequence(Class<?> clazz, Field idField){
+        String name = idField.getAnnotation(GeneratedValue.class).generator();
+        SequenceGenerator generator = null;
+        if(!name.equals("")){
+            if(idField.isAnnotationPresent(SequenceGenerator.class) && idField.getAnnotation(SequenceGenerator.class).name().equals(name))
+                generator = idField.getAnnotation(SequenceGenerator.class);
+            for (Class<?> type = clazz; generator == null && type != null; type = type.getSuperclass())
+                if(type.isAnnotationPresent(SequenceGenerator.class) && type.getAnnotation(SequenceGenerator.class).name().equals(name))
+                    generator = type.getAnnotation(SequenceGenerator.class);
+        }
+        if(generator == null) return new IdSequence(IdSequence.DEFAULT_SEQUENCE, 1, 1);
+        String sequenceName = !generator.sequenceName().equals("") ? generator.sequenceName() : generator.name();
+        return new IdSequence(sequenceName, generator.initialValue(), generator.allocationSize());
+    }
+
+    //the seed hibernate gives a new entity's version, null for version types it isn't known for
+    public static Object initialVersion(Class<?> type){
+        if(type.equals(Long.class) || type.equals(long.class)) return 0L;
+        if(type.equals(Integer.class) || type.equals(int.class)) return 0;
+        if(type.equals(Short.class) || type.equals(short.class)) return (short) 0;
+        if(type.equals(Instant.class)) return Instant.now();
+        if(type.equals(LocalDateTime.class)) return LocalDateTime.now();
+        return null;
+    }
+
+    private boolean isIntegral(Class<?> type){
+        return type.equals(Long.class) || type.equals(long.class) ||
+               type.equals(Integer.class) || type.equals(int.class) ||
+               type.equals(Short.class) || type.equals(short.class);
+    }
+
+    private boolean isJoinTable(Field field){
+        if(field.isAnnotationPresent(ManyToMany.class)) return field.getAnnotation(ManyToMany.class).mappedBy().equals("");
+        return field.isAnnotationPresent(OneToMany.class) && field.getAnnotation(OneToMany.class).mappedBy().equals("") &&
+               !field.isAnnotationPresent(JoinColumn.class);
+    }
+
+    //named as hibernate names them under the spring boot naming strategies, null if the target type can't be resolved
+    private JoinTableMapping joinTable(Class<?> clazz, String ownerTable, String ownerIdColumn, Field field){
+        Class<?> targetType = targetType(field);
+        Field targetId = targetType != null ? idField(targetType) : null;
+        if(targetId == null) return null;
+        JoinTable annotation = field.getAnnotation(JoinTable.class);
+        String name = annotation != null && !annotation.name().equals("")
+                ? annotation.name()
+                : toSnakeCase(ownerTable) + "_" + toSnakeCase(field.getName());
+        String ownerColumn = annotation != null && annotation.joinColumns().length > 0 && !annotation.joinColumns()[0].name().equals("")
+                ? annotation.joinColumns()[0].name()
+                : toSnakeCase(inverseName(clazz, targetType, field)) + "_" + ownerIdColumn;
+        String targetColumn = annotation != null && annotation.inverseJoinColumns().length > 0 &&
+                              !annotation.inverseJoinColumns()[0].name().equals("")
+                ? annotation.inverseJoinColumns()[0].name()
+                : toSnakeCase(field.getName()) + "_" + columnName(targetId);
+        return new JoinTableMapping(name, ownerColumn, targetColumn, classAccessorFactory.fieldAccessor(field));
+    }
+
+    //the inverse side's field if the relationship is bidirectional, otherwise the owner's entity name
+    private String inverseName(Class<?> clazz, Class<?> targetType, Field field){
+        for (Field inverse : getClassFields(targetType))
+            if(inverse.isAnnotationPresent(ManyToMany.class) && inverse.getAnnotation(ManyToMany.class).mappedBy().equals(field.getName()))
+                return inverse.getName();
+        Entity entity = clazz.getAnnotation(Entity.class);
+        return entity != null && !entity.name().equals("") ? entity.name() : clazz.getSimpleName();
+    }
+
+    private Class<?> targetType(Field field){
+        Class<?> targetEntity = field.isAnnotationPresent(ManyToMany.class)
+                ? field.getAnnotation(ManyToMany.class).targetEntity()
+                : field.getAnnotation(OneToMany.class).targetEntity();
+        if(!targetEntity.equals(void.class)) return targetEntity;
+        Type type = field.getGenericType();
+        if(!(type instanceof ParameterizedType)) return null;
+        Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+        return elementType instanceof Class ? (Class<?>) elementType : null;
+    }
+
+    private String unsupportedFieldReason(Field field){
+        if(field.isAnnotationPresent(ElementCollection.class))
+            return "element collection " + field.getName();
+        if(field.isAnnotationPresent(Embedded.class) || field.getType().isAnnotationPresent(Embeddable.class))
+            return "embedded field " + field.getName();
+        if(field.isAnnotationPresent(Convert.class) || field.isAnnotationPresent(Lob.class))
+            return "converted field " + field.getName();
+        if(field.isAnnotationPresent(OneToMany.class) && field.getAnnotation(OneToMany.class).mappedBy().equals(""))
+            return "foreign key of " + field.getName() + " in the target table";
+        if(!field.isAnnotationPresent(OneToOne.class) && !field.isAnnotationPresent(ManyToOne.class) &&
+           !field.isAnnotationPresent(OneToMany.class) && !field.isAnnotationPresent(ManyToMany.class) &&
+           !field.getType().isEnum() && sqlType(field.getType()) == Types.OTHER)
+            return "unmapped type " + field.getType().getSimpleName() + " of " + field.getName();
+        return null;
+    }
+
+    private ColumnMapping referenceColumn(Field field){
+        Field targetId = idField(field.getType());
+        String name;
+        if(field.isAnnotationPresent(JoinColumn.class) && !field.getAnnotation(JoinColumn.class).name().equals(""))
+            name = field.getAnnotation(JoinColumn.class).name();
+        else
+            name = toSnakeCase(field.getName()) + "_" + (targetId != null ? columnName(targetId) : "id");
+        int sqlType = targetId != null ? sqlType(targetId.getType()) : Types.OTHER;
+        return new ColumnMapping(name, classAccessorFactory.fieldAccessor(field), ColumnMapping.Kind.REFERENCE, sqlType);
+    }
+
+    private Field idField(Class<?> clazz){
+        for (Field field : getClassFields(clazz))
+            if(isId(field)) return field;
+        return null;
+    }
+
+    private ColumnMapping basicColumn(Field field){
+        return new ColumnMapping(
+                columnName(field), classAccessorFactory.fieldAccessor(field), ColumnMapping.Kind.BASIC, sqlType(field.getType()));
+    }
+
+    private ColumnMapping enumColumn(Field field){
+        boolean asString = field.isAnnotationPresent(Enumerated.class) &&
+                           field.getAnnotation(Enumerated.class).value() == EnumType.STRING;
+        FieldAccessor accessor = classAccessorFactory.fieldAccessor(field);
+        return asString
+                ? new ColumnMapping(columnName(field), accessor, ColumnMapping.Kind.ENUM_STRING, Types.VARCHAR)
+                : new ColumnMapping(columnName(field), accessor, ColumnMapping.Kind.ENUM_ORDINAL, Types.INTEGER);
+    }
+
+    private String columnName(Field field){
+        if(field.isAnnotationPresent(Column.class) && !field.getAnnotation(Column.class).name().equals(""))
+            return field.getAnnotation(Column.class).name();
+        return toSnakeCase(field.getName());
+    }
+
+    //mirrors the default spring boot physical naming strategy
+    public static String toSnakeCase(String name){
+        StringBuilder result = new StringBuilder(name.replace('.', '_'));
+        for (int i = 1; i < result.length() - 1; i++) {
+            if(Character.isLowerCase(result.charAt(i - 1)) &&
+               Character.isUpperCase(result.charAt(i)) &&
+               Character.isLowerCase(result.charAt(i + 1)))
+                result.insert(i++, '_');
+        }
+        return result.toString().toLowerCase();
+    }
+
+    public static int sqlType(Class<?> type){
+        if(type.equals(String.class) || type.equals(URL.class) ||
+           type.equals(Character.class) || type.equals(char.class)) return Types.VARCHAR;
+        if(type.equals(Long.class) || type.equals(long.class)) return Types.BIGINT;
+        if(type.equals(Integer.class) || type.equals(int.class)) return Types.INTEGER;
+        if(type.equals(Short.class) || type.equals(short.class)) return Types.SMALLINT;
+        if(type.equals(Byte.class) || type.equals(byte.class)) return Types.TINYINT;
+        if(type.equals(Double.class) || type.equals(double.class)) return Types.DOUBLE;
+        if(type.equals(Float.class) || type.equals(float.class)) return Types.REAL;
+        if(type.equals(Boolean.class) || type.equals(boolean.class)) return Types.BOOLEAN;
+        if(type.equals(BigDecimal.class)) return Types.NUMERIC;
+        if(type.equals(LocalDate.class) || type.equals(org.joda.time.LocalDate.class)) return Types.DATE;
+        if(type.equals(LocalDateTime.class) || type.equals(org.joda.time.LocalDateTime.class) ||
+           type.equals(Instant.class)) return Types.TIMESTAMP;
+        return Types.OTHER;
+    }
+}
@@ -0,0 +1,56 @@
+package dev.sanda.mockeri.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//power of two buckets over nanoseconds, cheap enough to record on every generated field
+public class LatencyHistogram {
+    private final static int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+    }
+
+    public void record(long nanos){
+        if(nanos < 0) nanos = 0;
+        buckets[nanos == 0 ? 0 : BUCKETS - 1 - Long.numberOfLeadingZeros(nanos)].increment();
+        count.increment();
+        totalNanos.add(nanos);
+    }
+
+    public long getCount(){
+        return count.sum();
+    }
+
+    public long getTotalNanos(){
+        return totalNanos.sum();
+    }
+
+    public double getMeanNanos(){
+        long n = getCount();
+        return n == 0 ? 0 : (double) getTotalNanos() / n;
+    }
+
+    //upper bound of the bucket holding the given percentile
+    public long percentileNanos(double percentile){
+        long n = getCount();
+        if(n == 0) return 0;
+        //at least the first sample, so the 0th percentile is the fastest bucket that was hit
+        long rank = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if(seen >= rank) return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public void reset(){
+        for (LongAdder bucket : buckets) bucket.reset();
+        count.reset();
+        totalNanos.reset();
+    }
+}
@@ -0,0 +1,192 @@
+package dev.sanda.mockeri.metrics;
+
+import dev.sanda.mockeri.meta.FieldReferenceType;
+import dev.sanda.mockeri.meta.MockDataSource;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+//every record method returns straight away when disabled, and start() doesn't read the clock
+@Component
+public class PopulationMetrics implements PopulationMetricsMXBean {
+    private final static String OBJECT_NAME = "dev.sanda.mockeri:type=PopulationMetrics";
+
+    @Value("${mockeri.metrics.enabled:false}")
+    private String enabledProperty;
+    private boolean enabled;
+
+    private final Map<Class<?>, LatencyHistogram> entities = new ConcurrentHashMap<>();
+    private final LatencyHistogram[] strategies = histograms(MockDataSource.values().length);
+    private final LatencyHistogram[] references = histograms(FieldReferenceType.values().length);
+    private final LatencyHistogram persistence = new LatencyHistogram();
+    private final LatencyHistogram generation = new LatencyHistogram();
+    private final LatencyHistogram existingLookups = new LatencyHistogram();
+    private final LatencyHistogram collectionInstantiation = new LatencyHistogram();
+    private final ThreadLocal<long[]> threadPersistenceNanos = ThreadLocal.withInitial(() -> new long[1]);
+    private final ThreadLocal<long[]> threadEntityNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final static Logger logger = Logger.getLogger(PopulationMetrics.class);
+
+    @PostConstruct
+    private void init(){
+        enabled = Boolean.parseBoolean(enabledProperty);
+        if(!enabled) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            logger.warn("Cannot register population metrics with JMX", e);
+        }
+    }
+
+    @PreDestroy
+    private void destroy(){
+        if(!enabled) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (Exception ignored) {}
+    }
+
+    @Override
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    public long start(){
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    //entity time includes the entities it creates, the mark is the one taken when it started
+    public void recordEntity(Class<?> type, long start, long entityMark){
+        if(!enabled) return;
+        long nanos = System.nanoTime() - start;
+        entities.computeIfAbsent(type, key -> new LatencyHistogram()).record(nanos);
+        //replaces what nested entities added, they're part of this one's time
+        threadEntityNanos.get()[0] = entityMark + nanos;
+    }
+
+    //field times leave out the entities created for the field since the mark, they're recorded per entity
+    public void recordStrategy(MockDataSource strategy, long start, long entityMark){
+        if(!enabled) return;
+        strategies[strategy.ordinal()].record(selfNanos(start, entityMark));
+    }
+
+    public void recordReference(FieldReferenceType referenceType, long start, long entityMark){
+        if(!enabled) return;
+        references[referenceType.ordinal()].record(selfNanos(start, entityMark));
+    }
+
+    //time spent creating entities on this thread so far
+    public long entityMark(){
+        return enabled ? threadEntityNanos.get()[0] : 0L;
+    }
+
+    private long selfNanos(long start, long entityMark){
+        return Math.max(0, System.nanoTime() - start - (threadEntityNanos.get()[0] - entityMark));
+    }
+
+    public void recordPersistence(long start){
+        if(!enabled) return;
+        long nanos = System.nanoTime() - start;
+        persistence.record(nanos);
+        threadPersistenceNanos.get()[0] += nanos;
+    }
+
+    public void recordExistingLookup(long start){
+        if(!enabled) return;
+        existingLookups.record(System.nanoTime() - start);
+    }
+
+    public void recordCollectionInstantiation(long start){
+        if(!enabled) return;
+        collectionInstantiation.record(System.nanoTime() - start);
+    }
+
+    //persistence time spent on this thread so far, used to split a root instantiation into generation and persistence
+    public long persistenceMark(){
+        return enabled ? threadPersistenceNanos.get()[0] : 0L;
+    }
+
+    public void recordGeneration(long start, long persistenceMark){
+        if(!enabled) return;
+        long persisted = threadPersistenceNanos.get()[0] - persistenceMark;
+        generation.record(Math.max(0, System.nanoTime() - start - persisted));
+    }
+
+    @Override
+    public Map<String, Long> getCounts(){
+        Map<String, Long> counts = new TreeMap<>();
+        forEachHistogram((name, histogram) -> counts.put(name, histogram.getCount()));
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMillis(){
+        Map<String, Double> means = new TreeMap<>();
+        forEachHistogram((name, histogram) -> means.put(name, histogram.getMeanNanos() / 1_000_000.0));
+        return means;
+    }
+
+    @Override
+    public long getPersistenceMillis(){
+        return TimeUnit.NANOSECONDS.toMillis(persistence.getTotalNanos());
+    }
+
+    @Override
+    public long getGenerationMillis(){
+        return TimeUnit.NANOSECONDS.toMillis(generation.getTotalNanos());
+    }
+
+    @Override
+    public String getReport(){
+        StringBuilder report = new StringBuilder("Mockeri population metrics\n");
+        report.append(String.format("  generation %d ms, persistence %d ms%n", getGenerationMillis(), getPersistenceMillis()));
+        report.append(String.format("  %-40s %10s %12s %10s %10s %12s%n",
+                "", "count", "total ms", "mean us", "p50 us", "p99 us"));
+        forEachHistogram((name, histogram) -> {
+            if(histogram.getCount() == 0) return;
+            report.append(String.format("  %-40s %10d %12d %10.1f %10.1f %12.1f%n",
+                    name,
+                    histogram.getCount(),
+                    TimeUnit.NANOSECONDS.toMillis(histogram.getTotalNanos()),
+                    histogram.getMeanNanos() / 1000.0,
+                    histogram.percentileNanos(50) / 1000.0,
+                    histogram.percentileNanos(99) / 1000.0));
+        });
+        return report.toString();
+    }
+
+    @Override
+    public void reset(){
+        forEachHistogram((name, histogram) -> histogram.reset());
+    }
+
+    private void forEachHistogram(BiConsumer<String, LatencyHistogram> action){
+        Map<String, LatencyHistogram> byEntity = new TreeMap<>();
+        entities.forEach((type, histogram) -> byEntity.put("entity " + type.getSimpleName(), histogram));
+        byEntity.forEach(action);
+        for (MockDataSource strategy : MockDataSource.values())
+            action.accept("strategy " + strategy, strategies[strategy.ordinal()]);
+        for (FieldReferenceType referenceType : FieldReferenceType.values())
+            action.accept("reference " + referenceType, references[referenceType.ordinal()]);
+        action.accept("existing row lookup", existingLookups);
+        action.accept("collection instantiation", collectionInstantiation);
+        action.accept("generation", generation);
+        action.accept("persistence", persistence);
+    }
+
+    private static LatencyHistogram[] histograms(int count){
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) histograms[i] = new LatencyHistogram();
+        return histograms;
+    }
+}
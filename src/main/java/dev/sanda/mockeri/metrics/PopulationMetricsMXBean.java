@@ -0,0 +1,13 @@
+package dev.sanda.mockeri.metrics;
+
+import java.util.Map;
+
+public interface PopulationMetricsMXBean {
+    boolean isEnabled();
+    Map<String, Long> getCounts();
+    Map<String, Double> getMeanMillis();
+    long getPersistenceMillis();
+    long getGenerationMillis();
+    String getReport();
+    void reset();
+}
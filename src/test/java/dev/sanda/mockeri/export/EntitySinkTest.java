@@ -0,0 +1,160 @@
+package dev.sanda.mockeri.export;
+
+import dev.sanda.mockeri.generator.fixture.Book;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import dev.sanda.mockeri.generator.fixture.Review;
+import dev.sanda.mockeri.generator.fixture.Shelf;
+import dev.sanda.mockeri.meta.ClassAccessorFactory;
+import dev.sanda.mockeri.meta.TableMappingFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class EntitySinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TableMappingFactory tableMappingFactory;
+    private final Function<Object, Object> idOf = entity -> ReflectionTestUtils.getField(entity, "id");
+
+    @Before
+    public void setUp(){
+        tableMappingFactory = new TableMappingFactory();
+        ReflectionTestUtils.setField(tableMappingFactory, "classAccessorFactory", new ClassAccessorFactory());
+    }
+
+    @Test
+    public void csvQuotesOnlyWhatNeedsQuoting() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (CsvEntitySink sink = new CsvEntitySink(directory, tableMappingFactory, idOf)) {
+            sink.write(review(1L, book(7L), "plain"));
+            sink.write(review(2L, null, "a, \"quoted\"\nline"));
+        }
+        assertEquals("id,book_id,title\n" +
+                     "1,7,plain\n" +
+                     "2,,\"a, \"\"quoted\"\"\nline\"\n", read(directory.resolve("review.csv")));
+    }
+
+    @Test
+    public void sqlEscapesQuotesAndWritesNulls() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (SqlEntitySink sink = new SqlEntitySink(directory, tableMappingFactory, idOf)) {
+            sink.write(review(1L, book(7L), "it's"));
+            sink.write(review(2L, null, null));
+        }
+        assertEquals("INSERT INTO review (id, book_id, title) VALUES (1, 7, 'it''s');\n" +
+                     "INSERT INTO review (id, book_id, title) VALUES (2, NULL, NULL);\n", read(directory.resolve("review.sql")));
+    }
+
+    @Test
+    public void ndjsonWritesReferencesAsIds() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        Book book = book(7L);
+        book.setReviews(Arrays.asList(review(1L, book, "tab\there"), review(2L, book, "\"q\" \\ \u00e9")));
+        try (NdjsonEntitySink sink = new NdjsonEntitySink(directory, new ClassAccessorFactory(), idOf)) {
+            sink.write(book);
+            sink.write(book.getReviews().get(1));
+        }
+        assertEquals("{\"id\":7,\"author\":null,\"reviews\":[1,2]}\n", read(directory.resolve("Book.ndjson")));
+        assertEquals("{\"id\":2,\"book\":7,\"title\":\"\\\"q\\\" \\\\ \u00e9\"}\n", read(directory.resolve("Review.ndjson")));
+    }
+
+    @Test
+    public void channelWriterEncodesRowsLargerThanItsBuffer() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("large.txt");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 50000; i++) text.append("\u00e9\u20ac\ud83d\ude00").append(i % 10);
+        try (ChannelRowWriter writer = new ChannelRowWriter(file)) {
+            writer.write(text);
+            writer.write("\nend");
+        }
+        assertEquals(text + "\nend", read(file));
+    }
+
+    @Test
+    public void exportSessionAssignsSequentialIdsAndHandsOutReferences() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (CsvEntitySink sink = new CsvEntitySink(directory, tableMappingFactory, idOf)) {
+            ExportSession session = new ExportSession(sink, tableMappingFactory, new ClassAccessorFactory());
+            assertNull(session.reference(Book.class, null));
+            Book first = book(null), second = book(null), preset = book(40L);
+            session.write(first);
+            session.write(second);
+            session.write(preset);
+            assertEquals(1L, first.getId().longValue());
+            assertEquals(2L, second.getId().longValue());
+            assertEquals(40L, preset.getId().longValue());
+            for (int i = 0; i < 50; i++) {
+                Book reference = (Book) session.reference(Book.class, 2L);
+                assertNotEquals(2L, reference.getId().longValue());
+            }
+        }
+        assertEquals("id,author_id\n1,\n2,\n40,\n", read(directory.resolve("book.csv")));
+    }
+
+    @Test
+    public void ownedCollectionsAreWrittenAsJoinTableRows() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (CsvEntitySink sink = new CsvEntitySink(directory, tableMappingFactory, idOf)) {
+            sink.write(shelf(3L, book(7L), book(8L)));
+        }
+        //the element collection and the byte array have no column, they're left out with a warning
+        assertEquals("id,label\n3,\n", read(directory.resolve("shelf.csv")));
+        assertEquals("shelf_id,books_id\n3,7\n3,8\n", read(directory.resolve("shelf_books.csv")));
+    }
+
+    @Test
+    public void joinTableInsertsMatchTheSchema() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (GenericApplicationContext context = MockeriTestContext.start()) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+            jdbcTemplate.update("INSERT INTO book (id) VALUES (7), (8)");
+            try (SqlEntitySink sink = new SqlEntitySink(directory, context.getBean(TableMappingFactory.class), idOf)) {
+                sink.write(shelf(3L, book(7L), book(8L)));
+            }
+            jdbcTemplate.execute(read(directory.resolve("shelf.sql")));
+            jdbcTemplate.execute(read(directory.resolve("shelf_books.sql")));
+            assertEquals(2L, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM shelf_books WHERE shelf_id = 3", Long.class));
+        }
+    }
+
+    private Shelf shelf(Long id, Book... books){
+        Shelf shelf = new Shelf();
+        shelf.setId(id);
+        shelf.setBooks(Arrays.asList(books));
+        return shelf;
+    }
+
+    private Book book(Long id){
+        Book book = new Book();
+        book.setId(id);
+        return book;
+    }
+
+    private Review review(Long id, Book book, String title){
+        Review review = new Review();
+        review.setId(id);
+        review.setBook(book);
+        review.setTitle(title);
+        return review;
+    }
+
+    private String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
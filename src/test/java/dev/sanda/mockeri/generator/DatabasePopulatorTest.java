@@ -0,0 +1,128 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.datafi.service.DataManager;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+public class DatabasePopulatorTest {
+
+    @Test
+    public void awaitPopulationBlocksUntilTheBackgroundRunIsDone() throws InterruptedException {
+        try (GenericApplicationContext context = MockeriTestContext.start("mockeri.population.async=true",
+                "mockeri.quantity.min=3", "mockeri.quantity.max=4", "mockeri.fan-out.default=fixed(2)")) {
+            DatabasePopulator populator = context.getBean(DatabasePopulator.class);
+            //started by hand, the context only starts it when DUMMY_POPULATE is set
+            populator.startPopulation();
+            assertTrue(populator.awaitPopulation(30, TimeUnit.SECONDS));
+            assertTrue(populator.getProgress().isFinished());
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+            assertEquals(3L, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM author", Long.class));
+            assertEquals(12L, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book", Long.class));
+        }
+    }
+
+    @Test
+    public void chunkedPopulationWritesEveryRootWithValidForeignKeys() throws InterruptedException {
+        //5 roots in chunks of 2, the last one holds a single root
+        try (GenericApplicationContext context = MockeriTestContext.start("mockeri.population.async=true",
+                "mockeri.quantity.min=5", "mockeri.quantity.max=6", "mockeri.fan-out.default=fixed(2)",
+                "mockeri.population.chunk-size=2")) {
+            DatabasePopulator populator = context.getBean(DatabasePopulator.class);
+            populator.startPopulation();
+            assertTrue(populator.awaitPopulation(30, TimeUnit.SECONDS));
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+            assertEquals(5L, count(jdbcTemplate, "author"));
+            assertEquals(20L, count(jdbcTemplate, "book"));
+            assertEquals(40L, count(jdbcTemplate, "review"));
+            assertEquals(0L, count(jdbcTemplate, "book b LEFT JOIN author a ON b.author_id = a.id WHERE b.author_id IS NOT NULL AND a.id IS NULL"));
+            assertEquals(0L, count(jdbcTemplate, "review r LEFT JOIN book b ON r.book_id = b.id WHERE r.book_id IS NOT NULL AND b.id IS NULL"));
+        }
+    }
+
+    @Test
+    public void eachChunkIsCommittedBeforeTheNextOneIsGenerated() throws InterruptedException {
+        try (GenericApplicationContext context = MockeriTestContext.start("mockeri.population.async=true",
+                "mockeri.quantity.min=1000", "mockeri.quantity.max=1001", "mockeri.fan-out.default=fixed(2)",
+                //batched, so without chunks the whole type would be written in one transaction
+                "mockeri.persistence.batch-size=4", "mockeri.population.chunk-size=1", "mockeri.population.rows-per-second=100")) {
+            DatabasePopulator populator = context.getBean(DatabasePopulator.class);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+            populator.startPopulation();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (count(jdbcTemplate, "author") < 2 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+            //other connections see the earlier chunks while the run is far from done
+            assertTrue(count(jdbcTemplate, "author") >= 2);
+            assertFalse(populator.getPopulation().isDone());
+            //a root and its books are committed together
+            assertEquals(0L, (long) jdbcTemplate.queryForObject(
+                    "SELECT (SELECT COUNT(*) FROM book) - 4 * (SELECT COUNT(*) FROM author)", Long.class));
+        }
+    }
+
+    @Test
+    public void topUpAddsOnlyTheRowsMissingFromTheTarget() throws InterruptedException {
+        //below the minimum, so the random target of 5 applies
+        assertEquals(Arrays.asList(5L, 2L * 4), topUp(3));
+    }
+
+    @Test
+    public void topUpLeavesTypesAtTheirTargetAlone() throws InterruptedException {
+        //at or over the minimum, the rows already there are the target
+        assertEquals(Arrays.asList(7L, 0L), topUp(7));
+    }
+
+    //authors and books after topping up a table holding the given number of authors
+    private List<Long> topUp(int existingAuthors) throws InterruptedException {
+        try (GenericApplicationContext context = MockeriTestContext.start("mockeri.population.async=true",
+                "mockeri.population.top-up=true", "mockeri.quantity.min=5", "mockeri.quantity.max=6",
+                "mockeri.fan-out.default=fixed(2)")) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+            for (int i = 0; i < existingAuthors; i++) jdbcTemplate.update("INSERT INTO author DEFAULT VALUES");
+            countThroughDataManager(context.getBean(DataManager.class), jdbcTemplate);
+            DatabasePopulator populator = context.getBean(DatabasePopulator.class);
+            populator.startPopulation();
+            assertTrue(populator.awaitPopulation(30, TimeUnit.SECONDS));
+            return Arrays.asList(count(jdbcTemplate, "author"), count(jdbcTemplate, "book"));
+        }
+    }
+
+    //the test context's DataManager is a mock, counts are answered from the table of the type it was last set to
+    private void countThroughDataManager(DataManager dataManager, JdbcTemplate jdbcTemplate){
+        AtomicReference<Class<?>> type = new AtomicReference<>();
+        doAnswer(invocation -> {
+            type.set(invocation.getArgument(0));
+            return null;
+        }).when(dataManager).setType(any());
+        when(dataManager.count()).thenAnswer(invocation -> count(jdbcTemplate, type.get().getSimpleName().toLowerCase()));
+    }
+
+    @Test
+    public void closingTheContextCancelsTheBackgroundRun() throws InterruptedException {
+        DatabasePopulator populator;
+        try (GenericApplicationContext context = MockeriTestContext.start("mockeri.population.async=true",
+                "mockeri.quantity.min=1000", "mockeri.quantity.max=1001", "mockeri.population.rows-per-second=50")) {
+            populator = context.getBean(DatabasePopulator.class);
+            populator.startPopulation();
+            assertFalse(populator.awaitPopulation(200, TimeUnit.MILLISECONDS));
+        }
+        assertTrue(populator.getPopulation().isCancelled());
+        assertTrue(populator.getProgress().isFinished());
+    }
+
+    private long count(JdbcTemplate jdbcTemplate, String from){
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + from, Long.class);
+    }
+}
@@ -0,0 +1,113 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.support.GenericApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class DatasetSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GenericApplicationContext context;
+    private DatasetSnapshot snapshot;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        context = MockeriTestContext.start("mockeri.snapshot.path=" + folder.getRoot().toPath().resolve("dataset.snapshot"));
+        snapshot = context.getBean(DatasetSnapshot.class);
+        connection = context.getBean(DataSource.class).getConnection();
+        execute("CREATE TABLE flyway_schema_history (version VARCHAR(50))",
+                "INSERT INTO flyway_schema_history VALUES ('1')",
+                "INSERT INTO author (id) VALUES (7), (42)",
+                "INSERT INTO book (id, author_id) VALUES (100, 7), (250, 42)",
+                "INSERT INTO shelf (id, label, plaque) VALUES (300, 'first', X'CAFE'), (301, 'second', NULL)",
+                "INSERT INTO shelf_keywords (shelf_id, keywords) VALUES (300, 'fiction'), (301, 'poetry')");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+        context.close();
+    }
+
+    @Test
+    public void restoresOnlyMappedTablesAndMovesGeneratorsPastRestoredIds() throws SQLException {
+        snapshot.write();
+        assertTrue(snapshot.canRestore());
+        execute("DELETE FROM shelf_keywords", "DELETE FROM shelf", "DELETE FROM book", "DELETE FROM author",
+                "DELETE FROM flyway_schema_history");
+
+        snapshot.restore();
+
+        assertEquals(2, count("author"));
+        assertEquals(2, count("book"));
+        assertEquals(2, count("shelf"));
+        assertEquals(2, count("shelf_keywords"));
+        assertEquals(0, count("flyway_schema_history"));
+        assertArrayEquals(new byte[]{(byte) 0xCA, (byte) 0xFE}, (byte[]) single("SELECT plaque FROM shelf WHERE id = 300"));
+        execute("INSERT INTO author (id) VALUES (DEFAULT)");
+        assertEquals(43L, ((Number) single("SELECT MAX(id) FROM author")).longValue());
+        assertEquals(302L, ((Number) single("SELECT NEXT VALUE FOR hibernate_sequence")).longValue());
+    }
+
+    @Test
+    public void aSnapshotIsntMixedIntoTablesThatAlreadyHoldRows() throws SQLException {
+        snapshot.write();
+        execute("DELETE FROM shelf_keywords", "DELETE FROM shelf", "DELETE FROM book", "DELETE FROM author WHERE id = 42");
+
+        snapshot.restore();
+
+        assertEquals(1, count("author"));
+        assertEquals(0, count("book"));
+        assertEquals(0, count("shelf"));
+    }
+
+    @Test
+    public void aFailedRestoreWritesNothing() throws SQLException {
+        snapshot.write();
+        execute("DELETE FROM shelf_keywords", "DELETE FROM shelf", "DELETE FROM book", "DELETE FROM author",
+                "ALTER TABLE shelf_keywords ADD CONSTRAINT no_poetry CHECK (keywords <> 'poetry')");
+
+        try {
+            snapshot.restore();
+            fail();
+        } catch (RuntimeException expected){}
+
+        assertEquals(0, count("author"));
+        assertEquals(0, count("book"));
+        assertEquals(0, count("shelf"));
+        assertEquals(0, count("shelf_keywords"));
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) statement.execute(sql);
+        }
+    }
+
+    private long count(String table) throws SQLException {
+        return ((Number) single("SELECT COUNT(*) FROM " + table)).longValue();
+    }
+
+    private Object single(String query) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(query)) {
+            assertTrue(result.next());
+            return result.getObject(1);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package dev.sanda.mockeri.generator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class DateGeneratorTest {
+
+    private final static LocalDateTime REFERENCE = LocalDateTime.of(2020, 6, 15, 12, 30);
+
+    private DateGenerator dateGenerator;
+
+    @Before
+    public void setUp(){
+        dateGenerator = dateGenerator("2020-06-15T12:30");
+    }
+
+    @Test
+    public void futureDatesAreNeverBeforeTheReference(){
+        DateGenerator.DateRange future = dateGenerator.future(2);
+        for (int i = 0; i < 1000; i++) {
+            LocalDateTime value = future.localDateTime();
+            assertFalse(value.isBefore(REFERENCE));
+            assertFalse(value.isAfter(REFERENCE.plusYears(2)));
+            LocalDate date = future.localDate();
+            assertFalse(date.isBefore(REFERENCE.toLocalDate()));
+            assertFalse(date.isAfter(REFERENCE.toLocalDate().plusYears(2)));
+        }
+    }
+
+    @Test
+    public void futureDatesWorkPastTheOldHardCodedCutOff(){
+        //future dates used to be drawn up to 2026-01-01, an empty range from then on
+        DateGenerator generator = dateGenerator("2031-03-01");
+        for (int i = 0; i < 100; i++) {
+            assertFalse(generator.getFutureRange().localDate().isBefore(LocalDate.of(2031, 3, 1)));
+            assertFalse(generator.future(1).instant().isBefore(LocalDateTime.of(2031, 3, 1, 0, 0).toInstant(ZoneOffset.UTC)));
+        }
+    }
+
+    @Test
+    public void pastDatesAreNeverAfterTheReference(){
+        DateGenerator.DateRange past = dateGenerator.past(3);
+        for (int i = 0; i < 1000; i++) {
+            LocalDateTime value = past.localDateTime();
+            assertFalse(value.isAfter(REFERENCE));
+            assertFalse(value.isBefore(REFERENCE.minusYears(3)));
+            Instant instant = past.instant();
+            assertFalse(instant.isAfter(REFERENCE.toInstant(ZoneOffset.UTC)));
+        }
+    }
+
+    @Test
+    public void configuredRangesApplyWhenNoYearsAreGiven(){
+        assertSame(dateGenerator.getFutureRange(), dateGenerator.future(0));
+        assertSame(dateGenerator.getPastRange(), dateGenerator.past(-1));
+        assertSame(dateGenerator.getDefaultRange(), dateGenerator.around(0));
+        for (int i = 0; i < 1000; i++) {
+            LocalDate date = dateGenerator.around(-1).localDate();
+            assertFalse(date.isBefore(LocalDate.of(2015, 6, 15)));
+            assertFalse(date.isAfter(LocalDate.of(2025, 6, 15)));
+            assertFalse(dateGenerator.getFutureRange().localDate().isAfter(LocalDate.of(2025, 6, 15)));
+        }
+    }
+
+    @Test
+    public void bothHalvesOfTheDefaultRangeAreUsed(){
+        boolean before = false, after = false;
+        for (int i = 0; i < 1000 && !(before && after); i++) {
+            LocalDateTime value = dateGenerator.getDefaultRange().localDateTime();
+            before |= value.isBefore(REFERENCE);
+            after |= value.isAfter(REFERENCE);
+        }
+        assertTrue(before);
+        assertTrue(after);
+    }
+
+    @Test
+    public void jodaTypesFollowTheSameRange(){
+        DateGenerator.DateRange future = dateGenerator.future(1);
+        for (int i = 0; i < 1000; i++) {
+            org.joda.time.LocalDate date = future.jodaLocalDate();
+            assertFalse(date.isBefore(new org.joda.time.LocalDate(2020, 6, 15)));
+            assertFalse(date.isAfter(new org.joda.time.LocalDate(2021, 6, 15)));
+        }
+    }
+
+    @Test
+    public void onlyKnownDateTypesAreSupported(){
+        for (Class<?> type : new Class<?>[]{LocalDate.class, LocalDateTime.class, Instant.class,
+                org.joda.time.LocalDate.class, org.joda.time.LocalDateTime.class}) {
+            assertTrue(dateGenerator.supports(type));
+            Supplier<?> source = dateGenerator.getDefaultRange().source(type);
+            assertTrue(type.isInstance(source.get()));
+        }
+        assertFalse(dateGenerator.supports(java.util.Date.class));
+        assertNull(dateGenerator.getDefaultRange().source(String.class));
+    }
+
+    @Test
+    public void dateOnlyReferencesStartAtMidnight(){
+        DateGenerator generator = dateGenerator("2020-06-15");
+        for (int i = 0; i < 100; i++)
+            assertFalse(generator.future(1).localDateTime().isBefore(LocalDateTime.of(2020, 6, 15, 0, 0)));
+    }
+
+    private DateGenerator dateGenerator(String reference){
+        DateGenerator generator = new DateGenerator();
+        ReflectionTestUtils.setField(generator, "referenceProperty", reference);
+        ReflectionTestUtils.setField(generator, "pastYearsProperty", "5");
+        ReflectionTestUtils.setField(generator, "futureYearsProperty", "5");
+        ReflectionTestUtils.invokeMethod(generator, "init");
+        return generator;
+    }
+}
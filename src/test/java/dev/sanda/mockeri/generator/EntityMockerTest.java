@@ -0,0 +1,174 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.datafi.annotations.attributes.NonApiUpdatable;
+import dev.sanda.datafi.annotations.attributes.NonApiUpdatables;
+import dev.sanda.mockeri.generator.fixture.Author;
+import dev.sanda.mockeri.generator.fixture.Book;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import dev.sanda.mockeri.generator.fixture.Shelf;
+import dev.sanda.mockeri.meta.MockUpdateOptions;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.Column;
+import javax.persistence.Id;
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class EntityMockerTest {
+
+    static class Reading {
+        private int count;
+        private long total;
+        private boolean active;
+        private Integer boxedCount;
+        private int preset = 3;
+        private String label;
+    }
+
+    @NonApiUpdatables("code")
+    static class Profile {
+        @Id
+        private Long id;
+        private String code;
+        @Column(updatable = false)
+        private String createdBy;
+        @NonApiUpdatable
+        private String handle;
+        private String nickname;
+        private String bio;
+    }
+
+    private static GenericApplicationContext context;
+    private static EntityMocker entityMocker;
+
+    @BeforeClass
+    public static void startContext(){
+        context = MockeriTestContext.start();
+        entityMocker = context.getBean(EntityMocker.class);
+    }
+
+    @AfterClass
+    public static void closeContext(){
+        context.close();
+    }
+
+    @Test
+    public void primitiveFieldsAtTheirDefaultValueAreGenerated(){
+        int[] counts = entityMocker.mockIntValues(Reading.class, "count", 100);
+        long[] totals = entityMocker.mockLongValues(Reading.class, "total", 100);
+        boolean[] flags = entityMocker.mockBooleanValues(Reading.class, "active", 100);
+        assertTrue(IntStream.of(counts).distinct().count() > 1);
+        assertTrue(Arrays.stream(totals).distinct().count() > 1);
+        assertTrue(IntStream.range(0, flags.length).anyMatch(i -> flags[i]));
+        assertTrue(IntStream.range(0, flags.length).anyMatch(i -> !flags[i]));
+    }
+
+    @Test
+    public void wrapperFieldsAreGenerated(){
+        int[] counts = entityMocker.mockIntValues(Reading.class, "boxedCount", 100);
+        assertTrue(IntStream.of(counts).distinct().count() > 1);
+    }
+
+    @Test
+    public void initializedPrimitivesAreLeftAlone(){
+        assertArrayEquals(new int[]{3, 3, 3}, entityMocker.mockIntValues(Reading.class, "preset", 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void typedValuesRejectOtherFieldTypes(){
+        entityMocker.mockIntValues(Reading.class, "total", 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFieldsAreRejected(){
+        entityMocker.mockFieldValues(Reading.class, "missing", 1);
+    }
+
+    @Test
+    public void onlyUpdatableFieldsAreRegenerated(){
+        Profile profile = entityMocker.mockUpdate(profile());
+        assertEquals(Long.valueOf(1), profile.id);
+        assertEquals("code", profile.code);
+        assertEquals("creator", profile.createdBy);
+        assertEquals("handle", profile.handle);
+        assertNotEquals("nickname", profile.nickname);
+        assertNotEquals("bio", profile.bio);
+    }
+
+    @Test
+    public void updatesCanBeNarrowedToGivenFields(){
+        Profile profile = entityMocker.mockUpdate(profile(), new MockUpdateOptions().fields("nickname", "code"));
+        assertNotEquals("nickname", profile.nickname);
+        assertEquals("bio", profile.bio);
+        //named, but still not updatable
+        assertEquals("code", profile.code);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void updatesOfUnknownFieldsAreRejected(){
+        entityMocker.mockUpdate(profile(), new MockUpdateOptions().fields("missing"));
+    }
+
+    @Test
+    public void updatedCopiesGetContainersOfTheirOwn(){
+        Shelf shelf = new Shelf();
+        shelf.setLabel("original");
+        shelf.setPlaque(new byte[]{1, 2});
+        shelf.setKeywords(new ArrayList<>(Arrays.asList("fiction", "poetry")));
+        Book book = new Book();
+        shelf.setBooks(new ArrayList<>(Collections.singletonList(book)));
+
+        List<Shelf> updates = entityMocker.mockUpdates(shelf, new MockUpdateOptions().fields("label").quantity(3));
+
+        assertEquals(3, updates.size());
+        for (Shelf update : updates) {
+            assertNotEquals("original", update.getLabel());
+            assertEquals(shelf.getKeywords(), update.getKeywords());
+            assertNotSame(shelf.getKeywords(), update.getKeywords());
+            assertNotSame(shelf.getBooks(), update.getBooks());
+            assertSame(book, update.getBooks().get(0));
+            assertArrayEquals(shelf.getPlaque(), update.getPlaque());
+            assertNotSame(shelf.getPlaque(), update.getPlaque());
+        }
+        updates.get(0).getKeywords().add("drama");
+        assertEquals(Arrays.asList("fiction", "poetry"), shelf.getKeywords());
+        assertEquals(Arrays.asList("fiction", "poetry"), updates.get(1).getKeywords());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void updateQuantityMustBePositive(){
+        new MockUpdateOptions().quantity(0);
+    }
+
+    @Test
+    public void bulkInstantiationWritesEveryRootInOneBatch(){
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        long authors = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM author", Long.class);
+        long books = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book", Long.class);
+        List<Object> ids = entityMocker.instantiateEntityIds(Author.class, 3);
+        assertEquals(3, new HashSet<>(ids).size());
+        assertFalse(ids.contains(null));
+        assertEquals(authors + 3, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM author", Long.class));
+        //the books are cascaded from their authors within the same batch
+        assertEquals(books + 3 * 4, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book", Long.class));
+    }
+
+    //as loaded from a row, field initializers would count as values the plan never generates
+    private Profile profile(){
+        Profile profile = new Profile();
+        profile.id = 1L;
+        profile.code = "code";
+        profile.createdBy = "creator";
+        profile.handle = "handle";
+        profile.nickname = "nickname";
+        profile.bio = "bio";
+        return profile;
+    }
+}
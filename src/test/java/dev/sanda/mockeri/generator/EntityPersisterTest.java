@@ -0,0 +1,88 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.generator.fixture.Author;
+import dev.sanda.mockeri.generator.fixture.Label;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+import static org.junit.Assert.*;
+
+public class EntityPersisterTest {
+
+    private GenericApplicationContext context;
+    private EntityPersister entityPersister;
+    private EntityMocker entityMocker;
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp(){
+        context = MockeriTestContext.start("mockeri.fan-out.default=fixed(2)");
+        entityPersister = context.getBean(EntityPersister.class);
+        entityMocker = context.getBean(EntityMocker.class);
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+    }
+
+    @After
+    public void tearDown(){
+        context.close();
+    }
+
+    @Test
+    public void cascadesReachEntitiesOfEarlierFlushesAndThePartialLastBatchIsWritten(){
+        assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+        //5 authors with 4 books of 2 reviews each is 65 entities, 16 full batches of 4 and one of 1
+        entityPersister.batch(() -> {
+            for (int i = 0; i < 5; i++) entityMocker.instantiateEntity(Author.class);
+        }, 4);
+        assertEquals(5, count("author"));
+        assertEquals(20, count("book"));
+        assertEquals(40, count("review"));
+        assertFalse(entityPersister.isBatching());
+    }
+
+    @Test
+    public void aFailedBatchWritesNothing(){
+        try {
+            entityPersister.batch(() -> {
+                for (int i = 0; i < 3; i++) entityMocker.instantiateEntity(Author.class);
+                throw new IllegalStateException("failed half way");
+            }, 4);
+            fail();
+        } catch (IllegalStateException expected){}
+        assertEquals(0, count("author"));
+        assertEquals(0, count("book"));
+        assertEquals(0, count("review"));
+    }
+
+    @Test
+    public void newInstancesArePersistedAndInstancesWithAnIdAreMerged(){
+        Author author = new Author();
+        assertSame(author, entityPersister.persist(Author.class, author));
+        assertNotNull(author.getId());
+
+        entityPersister.persist(Label.class, label("fiction", "first"));
+        Label replacement = label("fiction", "second");
+        Label merged = entityPersister.persist(Label.class, replacement);
+        assertNotSame(replacement, merged);
+        assertEquals(1, count("label"));
+        assertEquals("second", jdbcTemplate.queryForObject("SELECT description FROM label WHERE code = 'fiction'", String.class));
+    }
+
+    private Label label(String code, String description){
+        Label label = new Label();
+        label.setCode(code);
+        label.setDescription(description);
+        return label;
+    }
+
+    private long count(String table){
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+}
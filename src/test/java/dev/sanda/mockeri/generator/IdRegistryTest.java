@@ -0,0 +1,76 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.generator.fixture.Author;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class IdRegistryTest {
+
+    private GenericApplicationContext context;
+    private IdRegistry idRegistry;
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp(){
+        context = MockeriTestContext.start("mockeri.population.registry-recount-interval=50");
+        idRegistry = context.getBean(IdRegistry.class);
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+    }
+
+    @After
+    public void tearDown(){
+        context.close();
+    }
+
+    @Test
+    public void rowsAddedBehindTheRegistrysBackAreFoundAtTheNextRecount(){
+        List<Author> registered = new ArrayList<>();
+        for (int i = 0; i < 3; i++) registered.add(insertAuthor());
+        idRegistry.registerAll(Author.class, registered);
+        //the first lookup counts the table, every row went through the registry so it's served from there
+        assertNotNull(idRegistry.randomInstance(Author.class, null));
+        Long outsider = insertAuthor().getId();
+
+        Set<Long> picked = new HashSet<>();
+        for (int lookup = 2; lookup < 50; lookup++) picked.add(pick());
+        assertFalse(picked.contains(outsider));
+
+        //a recount falls due among these, and the table is read until the registry holds every row again
+        picked.clear();
+        for (int lookup = 0; lookup < 200; lookup++) picked.add(pick());
+        assertTrue(picked.contains(outsider));
+    }
+
+    @Test
+    public void theOnlyRowIsntPickedWhenItsExcluded(){
+        Author only = insertAuthor();
+        idRegistry.registerAll(Author.class, Collections.singletonList(only));
+        assertNull(idRegistry.randomInstance(Author.class, only.getId()));
+        assertNull(idRegistry.randomStandIn(Author.class, only.getId()));
+        assertEquals(only.getId(), ((Author) idRegistry.randomStandIn(Author.class, null)).getId());
+    }
+
+    private long pick(){
+        return ((Author) idRegistry.randomInstance(Author.class, null)).getId();
+    }
+
+    private Author insertAuthor(){
+        jdbcTemplate.update("INSERT INTO author DEFAULT VALUES");
+        Author author = new Author();
+        author.setId(jdbcTemplate.queryForObject("SELECT MAX(id) FROM author", Long.class));
+        return author;
+    }
+}
@@ -0,0 +1,64 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.generator.fixture.Author;
+import dev.sanda.mockeri.generator.fixture.Book;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import dev.sanda.mockeri.generator.fixture.Review;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.List;
+
+import static dev.sanda.mockeri.generator.InstantiationTracer.Outcome.*;
+import static org.junit.Assert.*;
+
+public class InstantiationTracerTest {
+
+    @Test
+    public void theMostRecentEventsAreKeptOldestFirst(){
+        try (GenericApplicationContext context = MockeriTestContext.start(
+                "mockeri.fan-out.default=fixed(2)", "mockeri.tracing.enabled=true", "mockeri.tracing.capacity=5")) {
+            //an author, its 4 books and their 8 reviews, each created after the entities it holds
+            context.getBean(EntityMocker.class).instantiateEntity(Author.class);
+            List<InstantiationTracer.Event> events = context.getBean(InstantiationTracer.class).recentEvents();
+            assertEquals(5, events.size());
+            for (int i = 0; i < events.size(); i++) {
+                assertEquals(8 + i, events.get(i).getSequence());
+                assertEquals(CREATED, events.get(i).getOutcome());
+                assertTrue(events.get(i).isPersisted());
+            }
+            assertEquals(Book.class, events.get(0).getType());
+            assertEquals(Review.class, events.get(1).getType());
+            InstantiationTracer.Event root = events.get(4);
+            assertEquals(Author.class, root.getType());
+            assertEquals(0, root.getDepth());
+            assertTrue(root.toString().endsWith("Author CREATED, persisted"));
+        }
+    }
+
+    @Test
+    public void reusedAndMissingRowsAreTraced(){
+        try (GenericApplicationContext context = MockeriTestContext.start(
+                "mockeri.fan-out.default=fixed(2)", "mockeri.tracing.enabled=true")) {
+            context.getBean(ReferenceReusePolicy.class).markReusable(Book.class);
+            EntityMocker entityMocker = context.getBean(EntityMocker.class);
+            InstantiationTracer tracer = context.getBean(InstantiationTracer.class);
+            //nothing to reuse yet, so the books are created
+            entityMocker.instantiateEntity(Author.class);
+            assertTrue(tracer.recentEvents().stream().anyMatch(event -> event.getOutcome() == NOT_FOUND));
+            tracer.reset();
+            entityMocker.instantiateEntity(Author.class);
+            List<InstantiationTracer.Event> events = tracer.recentEvents();
+            assertTrue(events.stream().filter(event -> event.getType() == Book.class).allMatch(event -> event.getOutcome() == REUSED));
+            assertTrue(events.stream().noneMatch(event -> event.getType() == Review.class));
+        }
+    }
+
+    @Test
+    public void nothingIsRecordedWhenDisabled(){
+        try (GenericApplicationContext context = MockeriTestContext.start("mockeri.fan-out.default=fixed(2)")) {
+            context.getBean(EntityMocker.class).instantiateEntity(Author.class);
+            assertTrue(context.getBean(InstantiationTracer.class).recentEvents().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.meta.ClassAccessorFactory;
+import dev.sanda.mockeri.meta.TableMappingFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.*;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JdbcEntityWriterTest {
+
+    enum Genre {
+        FICTION, POETRY, DRAMA
+    }
+
+    @Entity
+    static class PublishingHouse {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+        private String displayName;
+        @Column(name = "founded_on")
+        private LocalDate foundedIn;
+        @Enumerated(EnumType.STRING)
+        private Genre mainGenre;
+        private Genre secondaryGenre;
+        @OneToMany(mappedBy = "publisher")
+        private List<BookTitle> titles;
+    }
+
+    @Entity
+    static class BookTitle {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private long id;
+        @ManyToOne
+        private PublishingHouse publisher;
+        @ManyToOne
+        @JoinColumn(name = "editor")
+        private PublishingHouse editedBy;
+        private Instant releasedAt;
+        private Character grade;
+    }
+
+    @Entity
+    @SequenceGenerator(name = "imprints", sequenceName = "imprint_seq", allocationSize = 3)
+    static class Imprint {
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "imprints")
+        private Long id;
+        private String name;
+        @Version
+        private Long version;
+    }
+
+    @Entity
+    static class Edition {
+        @Id
+        @GeneratedValue
+        private int id;
+        @Version
+        private Instant modifiedAt;
+    }
+
+    private Connection connection;
+    private JdbcEntityWriter writer;
+
+    @Before
+    public void setUp() throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:jdbc-writer-test");
+        connection = dataSource.getConnection();
+        execute("CREATE TABLE publishing_house (id BIGINT AUTO_INCREMENT PRIMARY KEY, display_name VARCHAR(255), " +
+                "founded_on DATE, main_genre VARCHAR(16), secondary_genre INT)",
+                "CREATE TABLE book_title (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "publisher_id BIGINT REFERENCES publishing_house(id), editor BIGINT REFERENCES publishing_house(id), " +
+                "released_at TIMESTAMP, grade VARCHAR(1))",
+                "CREATE SEQUENCE imprint_seq START WITH 1 INCREMENT BY 3",
+                "CREATE TABLE imprint (id BIGINT PRIMARY KEY, name VARCHAR(255), version BIGINT NOT NULL)",
+                "CREATE SEQUENCE hibernate_sequence START WITH 1 INCREMENT BY 1",
+                "CREATE TABLE edition (id INT PRIMARY KEY, modified_at TIMESTAMP NOT NULL)");
+
+        TableMappingFactory tableMappingFactory = new TableMappingFactory();
+        ReflectionTestUtils.setField(tableMappingFactory, "classAccessorFactory", new ClassAccessorFactory());
+        IdRegistry idRegistry = mock(IdRegistry.class);
+        when(idRegistry.idOf(any())).thenAnswer(invocation -> ((PublishingHouse) invocation.getArgument(0)).id);
+        writer = new JdbcEntityWriter();
+        ReflectionTestUtils.setField(writer, "dataSource", dataSource);
+        ReflectionTestUtils.setField(writer, "tableMappingFactory", tableMappingFactory);
+        ReflectionTestUtils.setField(writer, "idRegistry", idRegistry);
+        ReflectionTestUtils.setField(writer, "rowsPerStatement", "2");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        execute("DROP ALL OBJECTS");
+        connection.close();
+    }
+
+    @Test
+    public void batchedInsertsRoundTrip() throws SQLException {
+        roundTrip(JdbcEntityWriter.JDBC);
+    }
+
+    @Test
+    public void multiRowInsertsRoundTrip() throws SQLException {
+        roundTrip(JdbcEntityWriter.JDBC_MULTI_ROW);
+    }
+
+    @Test
+    public void unmappableTypesFallBackToJpa(){
+        ReflectionTestUtils.setField(writer, "writer", JdbcEntityWriter.JDBC);
+        assertTrue(writer.supports(BookTitle.class));
+        assertFalse(writer.supports(Unmappable.class));
+        ReflectionTestUtils.setField(writer, "writer", JdbcEntityWriter.JPA);
+        assertFalse(writer.supports(BookTitle.class));
+    }
+
+    @Test
+    public void pooledSequenceIdsDontCollideWithIdsHibernateDraws() throws SQLException {
+        ReflectionTestUtils.setField(writer, "writer", JdbcEntityWriter.JDBC);
+        assertTrue(writer.supports(Imprint.class));
+        List<Imprint> first = Arrays.asList(imprint("first"), imprint("second"));
+        writer.write(Imprint.class, first);
+        //hibernate reads the next value and takes the 3 ids below it for itself
+        long hibernateUpperBound = nextValue("imprint_seq");
+        List<Imprint> second = Arrays.asList(imprint("third"), imprint("fourth"), imprint("fifth"));
+        writer.write(Imprint.class, second);
+
+        //the first value of a new sequence starts a block up to the next one, as the pooled optimizer reads it
+        assertEquals(Arrays.asList(1L, 2L), Arrays.asList(first.get(0).id, first.get(1).id));
+        assertEquals(Arrays.asList(3L, 4L, hibernateUpperBound + 1),
+                Arrays.asList(second.get(0).id, second.get(1).id, second.get(2).id));
+        for (Imprint imprint : second) {
+            assertFalse(imprint.id > hibernateUpperBound - 3 && imprint.id <= hibernateUpperBound);
+            assertEquals(Long.valueOf(0), imprint.version);
+        }
+        assertEquals(5, count("imprint WHERE version = 0"));
+    }
+
+    @Test
+    public void autoIdsComeFromTheDefaultSequenceAndVersionsAreSeeded() throws SQLException {
+        ReflectionTestUtils.setField(writer, "writer", JdbcEntityWriter.JDBC_MULTI_ROW);
+        Edition preset = new Edition();
+        preset.id = 100;
+        List<Edition> editions = Arrays.asList(new Edition(), preset, new Edition());
+        writer.write(Edition.class, editions);
+        assertEquals(Arrays.asList(1, 100, 2), Arrays.asList(editions.get(0).id, editions.get(1).id, editions.get(2).id));
+        assertNotNull(editions.get(0).modifiedAt);
+        assertEquals(3, nextValue("hibernate_sequence"));
+        assertEquals(3, count("edition WHERE modified_at IS NOT NULL"));
+    }
+
+    @Test
+    public void sequencesKeptInATableFallBackToJpa() throws SQLException {
+        execute("DROP SEQUENCE imprint_seq", "CREATE TABLE imprint_seq (next_val BIGINT)", "INSERT INTO imprint_seq VALUES (1)");
+        ReflectionTestUtils.setField(writer, "writer", JdbcEntityWriter.JDBC);
+        assertFalse(writer.supports(Imprint.class));
+    }
+
+    @Entity
+    static class Unmappable {
+        @Id
+        private Long id;
+        @ElementCollection
+        private List<String> tags;
+    }
+
+    private void roundTrip(String mode) throws SQLException {
+        ReflectionTestUtils.setField(writer, "writer", mode);
+        //three rows, so the multi-row writer also issues a shorter trailing statement
+        List<PublishingHouse> houses = Arrays.asList(
+                house("First Light", LocalDate.of(1901, 2, 3), Genre.POETRY, Genre.DRAMA),
+                house("Second Wind", null, Genre.FICTION, null),
+                house("Third Rail", LocalDate.of(2001, 12, 31), null, Genre.FICTION));
+        writer.write(PublishingHouse.class, houses);
+
+        assertEquals(3, new HashSet<>(Arrays.asList(houses.get(0).id, houses.get(1).id, houses.get(2).id)).size());
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(
+                     "SELECT display_name, founded_on, main_genre, secondary_genre FROM publishing_house WHERE id = " +
+                     houses.get(0).id)) {
+            assertTrue(rows.next());
+            assertEquals("First Light", rows.getString("display_name"));
+            assertEquals(LocalDate.of(1901, 2, 3), rows.getDate("founded_on").toLocalDate());
+            assertEquals("POETRY", rows.getString("main_genre"));
+            assertEquals(Genre.DRAMA.ordinal(), rows.getInt("secondary_genre"));
+        }
+
+        BookTitle title = new BookTitle();
+        title.publisher = houses.get(1);
+        title.editedBy = houses.get(2);
+        title.releasedAt = Instant.parse("2019-06-01T10:15:30Z");
+        title.grade = 'A';
+        writer.write(BookTitle.class, Arrays.asList(title));
+
+        assertTrue(title.id > 0);
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT * FROM book_title WHERE id = " + title.id)) {
+            assertTrue(rows.next());
+            assertEquals(houses.get(1).id.longValue(), rows.getLong("publisher_id"));
+            assertEquals(houses.get(2).id.longValue(), rows.getLong("editor"));
+            assertEquals(Timestamp.from(title.releasedAt), rows.getTimestamp("released_at"));
+            assertEquals("A", rows.getString("grade"));
+        }
+    }
+
+    private PublishingHouse house(String name, LocalDate foundedIn, Genre mainGenre, Genre secondaryGenre){
+        PublishingHouse house = new PublishingHouse();
+        house.displayName = name;
+        house.foundedIn = foundedIn;
+        house.mainGenre = mainGenre;
+        house.secondaryGenre = secondaryGenre;
+        return house;
+    }
+
+    private Imprint imprint(String name){
+        Imprint imprint = new Imprint();
+        imprint.name = name;
+        return imprint;
+    }
+
+    private long nextValue(String sequence) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet value = statement.executeQuery("SELECT NEXT VALUE FOR " + sequence)) {
+            assertTrue(value.next());
+            return value.getLong(1);
+        }
+    }
+
+    private long count(String from) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM " + from)) {
+            assertTrue(count.next());
+            return count.getLong(1);
+        }
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) statement.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Lob;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class MockingPlanFactoryTest {
+
+    static class Article {
+        private String title;
+        @Column(length = 40)
+        private String subtitle;
+        @Column(columnDefinition = "TEXT")
+        private String body;
+        @Column(columnDefinition = "mediumtext")
+        private String notes;
+        @Column(columnDefinition = "varchar(12) not null")
+        private String slug;
+        @Lob
+        private String content;
+        @ElementCollection
+        @Column(length = 8)
+        private List<String> tags;
+    }
+
+    private static GenericApplicationContext context;
+    private static MockingPlanFactory mockingPlanFactory;
+
+    @BeforeClass
+    public static void startContext(){
+        context = MockeriTestContext.start("mockeri.text.vocabulary-size=100");
+        mockingPlanFactory = context.getBean(MockingPlanFactory.class);
+    }
+
+    @AfterClass
+    public static void closeContext(){
+        context.close();
+    }
+
+    @Test
+    public void textIsCappedAtTheColumnLength(){
+        assertEquals(255, maxLength("title"));
+        assertEquals(40, maxLength("subtitle"));
+        assertEquals(12, maxLength("slug"));
+    }
+
+    @Test
+    public void textColumnsAreUnbounded(){
+        assertEquals(TextGenerator.UNBOUNDED, maxLength("body"));
+        assertEquals(TextGenerator.UNBOUNDED, maxLength("notes"));
+        assertEquals(TextGenerator.UNBOUNDED, maxLength("content"));
+    }
+
+    @Test
+    public void elementCollectionStringsAreCapped(){
+        Supplier<?> source = ReflectionTestUtils.invokeMethod(mockingPlanFactory, "collectionSource", field("tags"));
+        for (int i = 0; i < 20; i++) {
+            Collection<?> tags = (Collection<?>) source.get();
+            assertFalse(tags.isEmpty());
+            for (Object tag : tags) assertTrue(((String) tag).length() <= 8);
+        }
+    }
+
+    private int maxLength(String fieldName){
+        Integer maxLength = ReflectionTestUtils.invokeMethod(mockingPlanFactory, "maxLength", field(fieldName));
+        return maxLength;
+    }
+
+    private Field field(String name){
+        try {
+            return Article.class.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.generator.fixture.Author;
+import dev.sanda.mockeri.generator.fixture.Book;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ParallelGenerationTest {
+
+    @Test
+    public void parallelGenerationWritesTheSameRowsAsSequential(){
+        List<Long> sequential = populate("mockeri.generation.parallelism=1");
+        assertEquals(Arrays.asList(5L, 20L, 40L, 0L, 0L), sequential);
+        assertEquals(sequential, populate("mockeri.generation.parallelism=4"));
+    }
+
+    @Test
+    public void parallelGenerationLinksExistingRowsThroughTheOwningThread(){
+        try (GenericApplicationContext context = MockeriTestContext.start(
+                "mockeri.fan-out.default=fixed(2)", "mockeri.generation.parallelism=2")) {
+            EntityMocker entityMocker = context.getBean(EntityMocker.class);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+            entityMocker.instantiateEntity(Author.class);
+            //more forks waiting on the owning thread than there are generation threads
+            context.getBean(ReferenceReusePolicy.class).markReusable(Book.class);
+            for (int i = 0; i < 5; i++) {
+                Author author = entityMocker.instantiateEntity(Author.class);
+                assertFalse(author.getBooks().isEmpty());
+            }
+            assertEquals(6L, count(jdbcTemplate, "author"));
+            assertEquals(4L, count(jdbcTemplate, "book"));
+            assertEquals(8L, count(jdbcTemplate, "review"));
+        }
+    }
+
+    //row counts per table, and the number of dangling foreign keys
+    private List<Long> populate(String parallelism){
+        try (GenericApplicationContext context = MockeriTestContext.start("mockeri.fan-out.default=fixed(2)", parallelism)) {
+            EntityMocker entityMocker = context.getBean(EntityMocker.class);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+            for (int i = 0; i < 5; i++) entityMocker.instantiateEntity(Author.class);
+            return Arrays.asList(
+                    count(jdbcTemplate, "author"),
+                    count(jdbcTemplate, "book"),
+                    count(jdbcTemplate, "review"),
+                    count(jdbcTemplate, "book b LEFT JOIN author a ON b.author_id = a.id WHERE b.author_id IS NOT NULL AND a.id IS NULL"),
+                    count(jdbcTemplate, "review r LEFT JOIN book b ON r.book_id = b.id WHERE r.book_id IS NOT NULL AND b.id IS NULL"));
+        }
+    }
+
+    private long count(JdbcTemplate jdbcTemplate, String from){
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + from, Long.class);
+    }
+}
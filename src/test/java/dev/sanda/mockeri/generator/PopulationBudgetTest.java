@@ -0,0 +1,100 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.generator.fixture.Author;
+import dev.sanda.mockeri.generator.fixture.Book;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.sql.DataSource;
+
+import static org.junit.Assert.*;
+
+public class PopulationBudgetTest {
+
+    private PopulationBudget budget;
+    private ReferenceReusePolicy referenceReusePolicy;
+
+    @Before
+    public void setUp(){
+        referenceReusePolicy = new ReferenceReusePolicy();
+        budget = new PopulationBudget();
+        ReflectionTestUtils.setField(budget, "environment", new MockEnvironment().withProperty("mockeri.budget.type-rows.Book", "3"));
+        ReflectionTestUtils.setField(budget, "referenceReusePolicy", referenceReusePolicy);
+        ReflectionTestUtils.setField(budget, "totalRowsProperty", "5");
+        ReflectionTestUtils.invokeMethod(budget, "init");
+    }
+
+    @Test
+    public void typeBudgetMakesTheTypeReusableOnceReached(){
+        budget.recordRows(Book.class, 1);
+        budget.recordRows(Book.class, 1);
+        assertFalse(budget.isExhausted(Book.class));
+        assertEquals(1, budget.allowedRoots(Book.class, 10));
+        budget.recordRows(Book.class, 1);
+        assertTrue(budget.isExhausted(Book.class));
+        assertTrue(referenceReusePolicy.isReusable(Book.class));
+        assertFalse(referenceReusePolicy.isReusable(Author.class));
+        assertEquals(0, budget.allowedRoots(Book.class, 10));
+        assertEquals(2, budget.allowedRoots(Author.class, 10));
+    }
+
+    @Test
+    public void totalBudgetExhaustsEveryType(){
+        budget.recordRows(Author.class, 5);
+        assertTrue(budget.isExhausted(Author.class));
+        assertTrue(budget.isExhausted(Book.class));
+        assertTrue(referenceReusePolicy.isReusable(Book.class));
+        assertEquals(0, budget.allowedRoots(Book.class, 1));
+    }
+
+    @Test
+    public void rowsOfATransactionOnlyCountForOthersOnceItCommits(){
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> {
+            budget.recordRows(Book.class, 3);
+            assertTrue(budget.isExhausted(Book.class));
+        });
+        assertEquals(0, budget.rows(Book.class));
+        assertFalse(referenceReusePolicy.isReusable(Book.class));
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> budget.recordRows(Book.class, 3));
+        assertEquals(3, budget.rows(Book.class));
+        assertTrue(referenceReusePolicy.isReusable(Book.class));
+    }
+
+    @Test
+    public void anOptionalRelationshipIsLeftEmptyOnceItsTypeIsOutOfBudget(){
+        try (GenericApplicationContext context = MockeriTestContext.start(
+                "mockeri.fan-out.default=fixed(2)", "mockeri.budget.type-rows.Book=1")) {
+            EntityMocker entityMocker = context.getBean(EntityMocker.class);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+            //the budget is used up by the first book, its siblings within the same transaction link to it
+            Author first = entityMocker.instantiateEntity(Author.class);
+            assertEquals(1, first.getBooks().size());
+            assertEquals(1L, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book", Long.class));
+            //no rows left to link to, and no room for new ones
+            jdbcTemplate.update("DELETE FROM review");
+            jdbcTemplate.update("DELETE FROM book");
+            Author second = entityMocker.instantiateEntity(Author.class);
+            assertTrue(second.getBooks().isEmpty());
+            assertEquals(2L, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM author", Long.class));
+            assertEquals(0L, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book", Long.class));
+        }
+    }
+
+    private void inTransaction(int status, Runnable work){
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(), status);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
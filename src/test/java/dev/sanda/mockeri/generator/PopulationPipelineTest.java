@@ -0,0 +1,111 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.generator.fixture.Author;
+import dev.sanda.mockeri.generator.fixture.Book;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import dev.sanda.mockeri.meta.MockingContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PopulationPipelineTest {
+
+    private GenericApplicationContext context;
+    private PopulationPipeline pipeline;
+    private JdbcTemplate jdbcTemplate;
+    private final AtomicInteger generated = new AtomicInteger();
+
+    @Before
+    public void setUp(){
+        context = MockeriTestContext.start("mockeri.fan-out.default=fixed(2)");
+        pipeline = context.getBean(PopulationPipeline.class);
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        //counts the roots handed to the writers, the real mocker builds them
+        EntityMocker entityMocker = context.getBean(EntityMocker.class);
+        EntityMocker countingMocker = mock(EntityMocker.class);
+        when(countingMocker.instantiateDeferredEntity(any(), any())).thenAnswer(invocation -> {
+            Object root = entityMocker.instantiateDeferredEntity(invocation.getArgument(0), invocation.getArgument(1));
+            generated.incrementAndGet();
+            return root;
+        });
+        ReflectionTestUtils.setField(pipeline, "entityMocker", countingMocker);
+        //an existing row for reused relationships to link to
+        jdbcTemplate.update("INSERT INTO author DEFAULT VALUES");
+        Long authorId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM author", Long.class);
+        jdbcTemplate.update("INSERT INTO book (author_id) VALUES (?)", authorId);
+    }
+
+    @After
+    public void tearDown(){
+        context.getBean(ReferenceReusePolicy.class).reset();
+        context.close();
+    }
+
+    @Test
+    public void writesEveryGraphWithValidForeignKeysAndBoundedMemory(){
+        final int queueDepth = 1, generators = 2;
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger mostAhead = new AtomicInteger();
+        pipeline.populate(Author.class, 20, queueDepth, 1, generators, roots -> {
+            written.addAndGet(roots);
+            mostAhead.accumulateAndGet(generated.get() - written.get(), Math::max);
+            //a slow writer, unbounded generators would run far ahead of it
+            sleep(5);
+        });
+        assertEquals(20, written.get());
+        //graphs on the queue, plus one held by each generator blocked on it
+        assertTrue("generators ran " + mostAhead.get() + " roots ahead", mostAhead.get() <= queueDepth + generators);
+        assertEquals(1 + 20, count("author"));
+        assertEquals(1 + 20 * 4, count("book"));
+        assertEquals(20 * 4 * 2, count("review"));
+        assertEquals(0, count("book b LEFT JOIN author a ON b.author_id = a.id WHERE b.author_id IS NOT NULL AND a.id IS NULL"));
+        assertEquals(0, count("review r LEFT JOIN book b ON r.book_id = b.id WHERE r.book_id IS NOT NULL AND b.id IS NULL"));
+    }
+
+    @Test
+    public void existingRowsReachedByACascadeAreLinkedInTheWritersTransaction(){
+        context.getBean(ReferenceReusePolicy.class).markReusable(Book.class);
+        pipeline.populate(Author.class, 5, 1, 1, 1, roots -> {});
+        assertEquals(1 + 5, count("author"));
+        assertEquals(1, count("book"));
+        assertEquals(0, count("review"));
+    }
+
+    @Test
+    public void generatorsPickStandInsInsteadOfLoadingRows(){
+        EntityMocker entityMocker = context.getBean(EntityMocker.class);
+        context.getBean(ReferenceReusePolicy.class).markReusable(Book.class);
+        MockingContext mockingContext = new MockingContext();
+        Author author = entityMocker.instantiateDeferredEntity(Author.class, mockingContext);
+        assertEquals(1, mockingContext.drainDeferred().size());
+        assertFalse(author.getBooks().isEmpty());
+        for (Book book : author.getBooks()) {
+            assertNotNull(book.getId());
+            assertNull(book.getAuthor());
+        }
+        assertEquals(1, count("author"));
+    }
+
+    private long count(String from){
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + from, Long.class);
+    }
+
+    private static void sleep(long millis){
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
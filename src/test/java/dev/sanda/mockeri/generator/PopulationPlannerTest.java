@@ -0,0 +1,130 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.datafi.reflection.CachedEntityTypeInfo;
+import dev.sanda.datafi.reflection.ReflectionCache;
+import dev.sanda.mockeri.generator.fixture.Author;
+import dev.sanda.mockeri.generator.fixture.Book;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import dev.sanda.mockeri.generator.fixture.Review;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PopulationPlannerTest {
+
+    private static GenericApplicationContext context;
+    private static CachedEntityTypeInfo author, book;
+
+    @BeforeClass
+    public static void startContext(){
+        context = start();
+        author = type(context, Author.class);
+        book = type(context, Book.class);
+    }
+
+    @AfterClass
+    public static void closeContext(){
+        context.close();
+    }
+
+    @After
+    public void resetReuse(){
+        context.getBean(ReferenceReusePolicy.class).reset();
+    }
+
+    @Test
+    public void rowsFollowTheFanOutOfEveryRelationship(){
+        PopulationPlanner.Estimate estimate = planner().estimate(plan(author, 10));
+        //10 authors, 4 books each, 2 reviews per book by default, the back references are cycles
+        assertEquals(10, rows(estimate, Author.class));
+        assertEquals(40, rows(estimate, Book.class));
+        assertEquals(80, rows(estimate, Review.class));
+        assertEquals(130, estimate.getRows());
+        assertEquals(Review.class, estimate.getTables().get(0).getType());
+        assertFalse(estimate.isOverBudget());
+    }
+
+    @Test
+    public void rowsOfSeveralRootsAddUp(){
+        Map<CachedEntityTypeInfo, Integer> plan = plan(author, 10);
+        plan.put(book, 5);
+        PopulationPlanner.Estimate estimate = planner().estimate(plan);
+        assertEquals(45, rows(estimate, Book.class));
+        assertEquals(90, rows(estimate, Review.class));
+    }
+
+    @Test
+    public void reusableTypesAreNotGenerated(){
+        context.getBean(ReferenceReusePolicy.class).markReusable(Book.class);
+        PopulationPlanner.Estimate estimate = planner().estimate(plan(author, 10));
+        assertEquals(10, estimate.getRows());
+        assertEquals(1, estimate.getTables().size());
+    }
+
+    @Test
+    public void typeAndTotalBudgetsAreFlagged(){
+        try (GenericApplicationContext typeBudget = start("mockeri.budget.type-rows.Book=30")) {
+            PopulationPlanner.Estimate estimate = planner(typeBudget).estimate(plan(type(typeBudget, Author.class), 10));
+            assertTrue(estimate.isOverBudget());
+            assertTrue(estimate.toString().contains("over budget of 30"));
+        }
+        try (GenericApplicationContext totalBudget = start("mockeri.budget.total-rows=100")) {
+            CachedEntityTypeInfo author = type(totalBudget, Author.class);
+            assertTrue(planner(totalBudget).estimate(plan(author, 10)).isOverBudget());
+            assertFalse(planner(totalBudget).estimate(plan(author, 5)).isOverBudget());
+        }
+    }
+
+    @Test
+    public void rowSizesFollowTheColumnTypes(){
+        PopulationPlanner.Estimate estimate = planner().estimate(plan(author, 1));
+        PopulationPlanner.TableEstimate reviews = table(estimate, Review.class);
+        //overhead, a BIGINT id, a BIGINT foreign key and a VARCHAR capped at its length
+        assertEquals(24 + 8 + 8 + 10, reviews.getBytesPerRow());
+        assertEquals(2L * reviews.getBytesPerRow() * 4, reviews.getBytes());
+    }
+
+    private Map<CachedEntityTypeInfo, Integer> plan(CachedEntityTypeInfo type, int quantity){
+        Map<CachedEntityTypeInfo, Integer> plan = new LinkedHashMap<>();
+        plan.put(type, quantity);
+        return plan;
+    }
+
+    private long rows(PopulationPlanner.Estimate estimate, Class<?> type){
+        return table(estimate, type).getRows();
+    }
+
+    private PopulationPlanner.TableEstimate table(PopulationPlanner.Estimate estimate, Class<?> type){
+        return estimate.getTables().stream()
+                .filter(table -> table.getType().equals(type))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+
+    //2 reviews per book by default, as in the expected row counts
+    private static GenericApplicationContext start(String... properties){
+        String[] withFanOut = Arrays.copyOf(properties, properties.length + 1);
+        withFanOut[properties.length] = "mockeri.fan-out.default=fixed(2)";
+        return MockeriTestContext.start(withFanOut);
+    }
+
+    private static CachedEntityTypeInfo type(GenericApplicationContext context, Class<?> clazz){
+        return context.getBean(ReflectionCache.class).getEntitiesCache().get(clazz.getSimpleName());
+    }
+
+    private PopulationPlanner planner(){
+        return planner(context);
+    }
+
+    private PopulationPlanner planner(GenericApplicationContext context){
+        return context.getBean(PopulationPlanner.class);
+    }
+}
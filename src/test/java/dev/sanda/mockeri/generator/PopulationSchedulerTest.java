@@ -0,0 +1,124 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.datafi.reflection.CachedEntityTypeInfo;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.OneToOne;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class PopulationSchedulerTest {
+
+    static class Author {
+        @OneToMany(mappedBy = "author")
+        private List<Book> books;
+        @OneToOne(mappedBy = "author")
+        private Profile profile;
+    }
+
+    static class Profile {
+        @OneToOne
+        private Author author;
+    }
+
+    static class Book {
+        @ManyToOne
+        private Author author;
+        @OneToMany(mappedBy = "book")
+        private List<Review> reviews;
+    }
+
+    static class Review {
+        @ManyToOne
+        private Book book;
+        @ManyToOne
+        private Review inReplyTo;
+    }
+
+    static class Chicken {
+        @ManyToOne
+        private Egg egg;
+    }
+
+    static class Egg {
+        @ManyToOne
+        private Chicken chicken;
+    }
+
+    private PopulationScheduler scheduler;
+    private CachedEntityTypeInfo author, profile, book, review;
+
+    @Before
+    public void setUp(){
+        scheduler = new PopulationScheduler();
+        author = type(Author.class);
+        profile = type(Profile.class);
+        book = type(Book.class);
+        review = type(Review.class);
+    }
+
+    @Test
+    public void onlyOwningSingleReferencesAreDependencies(){
+        Map<CachedEntityTypeInfo, Set<CachedEntityTypeInfo>> graph =
+                scheduler.dependencyGraph(Arrays.asList(review, book, profile, author));
+        assertEquals(Collections.emptySet(), graph.get(author));
+        assertEquals(Collections.singleton(author), graph.get(profile));
+        assertEquals(Collections.singleton(author), graph.get(book));
+        //the self reference doesn't count
+        assertEquals(Collections.singleton(book), graph.get(review));
+    }
+
+    @Test
+    public void typesStartOnlyAfterTheirDependenciesFinished(){
+        ReflectionTestUtils.setField(scheduler, "parallelism", "4");
+        Map<CachedEntityTypeInfo, Integer> plan = new LinkedHashMap<>();
+        plan.put(review, 1);
+        plan.put(book, 1);
+        plan.put(profile, 1);
+        plan.put(author, 1);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        scheduler.schedule(plan, (type, quantity) -> {
+            events.add("start " + type.getClazz().getSimpleName());
+            events.add("end " + type.getClazz().getSimpleName());
+        });
+        assertEquals(8, events.size());
+        assertTrue(events.indexOf("end Author") < events.indexOf("start Book"));
+        assertTrue(events.indexOf("end Author") < events.indexOf("start Profile"));
+        assertTrue(events.indexOf("end Book") < events.indexOf("start Review"));
+    }
+
+    @Test
+    public void cyclesAreBrokenInsteadOfBlocking(){
+        ReflectionTestUtils.setField(scheduler, "parallelism", "2");
+        Map<CachedEntityTypeInfo, Integer> plan = new LinkedHashMap<>();
+        plan.put(type(Chicken.class), 1);
+        plan.put(type(Egg.class), 1);
+        List<CachedEntityTypeInfo> populated = Collections.synchronizedList(new ArrayList<>());
+        scheduler.schedule(plan, (type, quantity) -> populated.add(type));
+        assertEquals(new HashSet<>(plan.keySet()), new HashSet<>(populated));
+    }
+
+    @Test
+    public void runsInPlanOrderWithoutParallelism(){
+        ReflectionTestUtils.setField(scheduler, "parallelism", "1");
+        Map<CachedEntityTypeInfo, Integer> plan = new LinkedHashMap<>();
+        plan.put(book, 1);
+        plan.put(author, 1);
+        List<CachedEntityTypeInfo> populated = new ArrayList<>();
+        scheduler.schedule(plan, (type, quantity) -> populated.add(type));
+        assertEquals(Arrays.asList(book, author), populated);
+    }
+
+    private CachedEntityTypeInfo type(Class<?> clazz){
+        CachedEntityTypeInfo type = mock(CachedEntityTypeInfo.class);
+        doReturn(clazz).when(type).getClazz();
+        return type;
+    }
+}
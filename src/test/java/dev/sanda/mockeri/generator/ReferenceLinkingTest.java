@@ -0,0 +1,55 @@
+package dev.sanda.mockeri.generator;
+
+import dev.sanda.mockeri.generator.fixture.Book;
+import dev.sanda.mockeri.generator.fixture.MockeriTestContext;
+import dev.sanda.mockeri.generator.fixture.Shelf;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import javax.sql.DataSource;
+
+import static org.junit.Assert.*;
+
+public class ReferenceLinkingTest {
+
+    @Test
+    public void existingRowsAreLinkedWithoutLoadingThem(){
+        try (GenericApplicationContext context = MockeriTestContext.start(
+                "mockeri.fan-out.default=fixed(2)", "mockeri.population.link-by-reference=true")) {
+            Shelf shelf = shelfOfExistingBooks(context);
+            PersistenceUnitUtil persistenceUnitUtil = context.getBean(EntityManagerFactory.class).getPersistenceUnitUtil();
+            for (Book book : shelf.getBooks()) assertFalse(persistenceUnitUtil.isLoaded(book));
+            assertJoinRowsReferenceExistingBooks(context, shelf);
+        }
+    }
+
+    @Test
+    public void existingRowsAreLoadedUnlessLinkingByReference(){
+        try (GenericApplicationContext context = MockeriTestContext.start("mockeri.fan-out.default=fixed(2)")) {
+            Shelf shelf = shelfOfExistingBooks(context);
+            PersistenceUnitUtil persistenceUnitUtil = context.getBean(EntityManagerFactory.class).getPersistenceUnitUtil();
+            for (Book book : shelf.getBooks()) assertTrue(persistenceUnitUtil.isLoaded(book));
+            assertJoinRowsReferenceExistingBooks(context, shelf);
+        }
+    }
+
+    private Shelf shelfOfExistingBooks(GenericApplicationContext context){
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        for (int i = 0; i < 3; i++) jdbcTemplate.update("INSERT INTO book DEFAULT VALUES");
+        context.getBean(ReferenceReusePolicy.class).markReusable(Book.class);
+        Shelf shelf = context.getBean(EntityMocker.class).instantiateEntity(Shelf.class);
+        assertFalse(shelf.getBooks().isEmpty());
+        return shelf;
+    }
+
+    private void assertJoinRowsReferenceExistingBooks(GenericApplicationContext context, Shelf shelf){
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        assertEquals(3L, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book", Long.class));
+        assertEquals(shelf.getBooks().size(), (long) jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM shelf_books sb JOIN book b ON sb.books_id = b.id WHERE sb.shelf_id = ?",
+                Long.class, shelf.getId()));
+    }
+}
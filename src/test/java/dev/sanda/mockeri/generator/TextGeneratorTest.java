@@ -0,0 +1,64 @@
+package dev.sanda.mockeri.generator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.*;
+
+public class TextGeneratorTest {
+
+    private TextGenerator textGenerator;
+
+    @Before
+    public void setUp(){
+        textGenerator = new TextGenerator();
+        ReflectionTestUtils.setField(textGenerator, "vocabularySize", "100");
+        ReflectionTestUtils.setField(textGenerator, "wordList", "");
+        ReflectionTestUtils.setField(textGenerator, "sentenceWords", "7-20");
+        ReflectionTestUtils.setField(textGenerator, "paragraphWords", "20-30");
+        ReflectionTestUtils.invokeMethod(textGenerator, "init");
+    }
+
+    @Test
+    public void textNeverExceedsTheMaxLength(){
+        for (int maxLength = 1; maxLength < 60; maxLength++) {
+            for (int i = 0; i < 50; i++) {
+                String text = textGenerator.paragraph(maxLength);
+                assertTrue(text.length() <= maxLength);
+                assertFalse(text.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void wholeWordsAreKept(){
+        for (int i = 0; i < 200; i++) {
+            String text = textGenerator.sentence(40);
+            assertFalse(text.startsWith(" "));
+            assertFalse(text.endsWith(" "));
+            assertFalse(text.contains("  "));
+        }
+    }
+
+    @Test
+    public void wordCountStaysWithinTheRange(){
+        for (int i = 0; i < 200; i++) {
+            int words = textGenerator.text(3, 5, TextGenerator.UNBOUNDED).split(" ").length;
+            assertTrue(words >= 3 && words < 5);
+        }
+    }
+
+    @Test
+    public void aSingleWordLongerThanTheMaxLengthIsCutShort(){
+        ReflectionTestUtils.setField(textGenerator, "vocabulary", new String[]{"extraordinarily"});
+        assertEquals("extra", textGenerator.text(1, 2, 5));
+        assertEquals("extraordinarily", textGenerator.text(2, 3, 20));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyWordCountRangesAreRejected(){
+        ReflectionTestUtils.setField(textGenerator, "sentenceWords", "5-5");
+        ReflectionTestUtils.invokeMethod(textGenerator, "init");
+    }
+}
@@ -0,0 +1,22 @@
+package dev.sanda.mockeri.generator.fixture;
+
+import dev.sanda.mockeri.annotations.CompositeEntity;
+import dev.sanda.mockeri.annotations.FanOut;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.List;
+
+@Getter
+@Setter
+@Entity
+@CompositeEntity
+public class Author {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @FanOut(4)
+    @OneToMany(mappedBy = "author", cascade = CascadeType.ALL)
+    private List<Book> books;
+}
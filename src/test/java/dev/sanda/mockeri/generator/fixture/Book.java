@@ -0,0 +1,20 @@
+package dev.sanda.mockeri.generator.fixture;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.List;
+
+@Getter
+@Setter
+@Entity
+public class Book {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @ManyToOne
+    private Author author;
+    @OneToMany(mappedBy = "book")
+    private List<Review> reviews;
+}
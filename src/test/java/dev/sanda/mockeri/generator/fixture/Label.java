@@ -0,0 +1,16 @@
+package dev.sanda.mockeri.generator.fixture;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Getter
+@Setter
+@Entity
+public class Label {
+    @Id
+    private String code;
+    private String description;
+}
@@ -0,0 +1,124 @@
+package dev.sanda.mockeri.generator.fixture;
+
+import dev.sanda.datafi.reflection.CachedEntityField;
+import dev.sanda.datafi.reflection.CachedEntityTypeInfo;
+import dev.sanda.datafi.reflection.ReflectionCache;
+import dev.sanda.datafi.service.DataManager;
+import dev.sanda.mockeri.meta.CollectionInstantiator;
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.*;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//the mocker wired as an application gets it, over an in-memory H2 database holding the fixture entities
+public class MockeriTestContext {
+    public final static List<Class<?>> ENTITIES = Collections.unmodifiableList(Arrays.asList(
+            Author.class, Book.class, Review.class, Shelf.class, Label.class));
+
+    private final static AtomicInteger databases = new AtomicInteger();
+
+    //properties are given as name=value, each context gets a database of its own
+    public static GenericApplicationContext start(String... properties){
+        Map<String, Object> values = new HashMap<>();
+        values.put("mockeri.test.database", "mockeri-test-" + databases.incrementAndGet());
+        for (String property : properties) {
+            int split = property.indexOf('=');
+            values.put(property.substring(0, split), property.substring(split + 1));
+        }
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("mockeri-test", values));
+        //registered as they are, so their own lifecycle callbacks don't run against the mocks
+        context.getBeanFactory().registerSingleton("reflectionCache", reflectionCache(ENTITIES));
+        context.getBeanFactory().registerSingleton("collectionInstantiator", collectionInstantiator());
+        context.getBeanFactory().registerSingleton("dataManager", mock(DataManager.class));
+        context.register(TestConfiguration.class);
+        context.refresh();
+        return context;
+    }
+
+    public static ReflectionCache reflectionCache(Collection<Class<?>> entities){
+        Map<String, CachedEntityTypeInfo> types = new LinkedHashMap<>();
+        for (Class<?> entity : entities) types.put(entity.getSimpleName(), type(entity));
+        ReflectionCache reflectionCache = mock(ReflectionCache.class);
+        when(reflectionCache.getEntitiesCache()).thenReturn(types);
+        return reflectionCache;
+    }
+
+    public static CachedEntityTypeInfo type(Class<?> clazz){
+        CachedEntityTypeInfo type = mock(CachedEntityTypeInfo.class);
+        doReturn(clazz).when(type).getClazz();
+        Map<String, CachedEntityField> fields = new LinkedHashMap<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            CachedEntityField cachedField = mock(CachedEntityField.class);
+            when(cachedField.getField()).thenReturn(field);
+            when(cachedField.isCollectionOrMap()).thenReturn(
+                    Collection.class.isAssignableFrom(field.getType()) || Map.class.isAssignableFrom(field.getType()));
+            fields.put(field.getName(), cachedField);
+        }
+        when(type.getFields()).thenReturn(fields);
+        return type;
+    }
+
+    //the real one scans java.util for collection types, which finds nothing on a module path
+    public static CollectionInstantiator collectionInstantiator(){
+        CollectionInstantiator collectionInstantiator = mock(CollectionInstantiator.class);
+        when(collectionInstantiator.instantiateCollection(any(), any())).thenAnswer(invocation -> {
+            Class<?> collectionType = invocation.getArgument(0);
+            return Set.class.isAssignableFrom(collectionType) ? new LinkedHashSet<>() : new ArrayList<>();
+        });
+        return collectionInstantiator;
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    @ComponentScan(basePackages = "dev.sanda.mockeri", excludeFilters = {
+            @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = CollectionInstantiator.class),
+            @ComponentScan.Filter(type = FilterType.REGEX, pattern = "dev\\.sanda\\.mockeri\\.generator\\.fixture\\..*")})
+    static class TestConfiguration {
+        @Value("${mockeri.test.database}")
+        private String database;
+
+        @Bean
+        public DataSource dataSource(){
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+            return dataSource;
+        }
+
+        @Bean
+        public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource){
+            LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+            factory.setPackagesToScan(TestConfiguration.class.getPackage().getName());
+            Properties properties = new Properties();
+            properties.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+            properties.setProperty("hibernate.physical_naming_strategy", SnakeCaseNamingStrategy.class.getName());
+            properties.setProperty("hibernate.implicit_naming_strategy", OwnerPrefixedJoinTableNamingStrategy.class.getName());
+            factory.setJpaProperties(properties);
+            return factory;
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory){
+            return new JpaTransactionManager(entityManagerFactory);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package dev.sanda.mockeri.generator.fixture;
+
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.naming.ImplicitJoinTableNameSource;
+import org.hibernate.boot.model.naming.ImplicitNamingStrategyJpaCompliantImpl;
+
+//join tables named after the owning table and field, as spring boot names them
+public class OwnerPrefixedJoinTableNamingStrategy extends ImplicitNamingStrategyJpaCompliantImpl {
+    @Override
+    public Identifier determineJoinTableName(ImplicitJoinTableNameSource source) {
+        String name = source.getOwningPhysicalTableName() + "_" + source.getAssociationOwningAttributePath().getProperty();
+        return toIdentifier(name, source.getBuildingContext());
+    }
+}
@@ -0,0 +1,19 @@
+package dev.sanda.mockeri.generator.fixture;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+@Getter
+@Setter
+@Entity
+public class Review {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @ManyToOne
+    private Book book;
+    @Column(length = 10)
+    private String title;
+}
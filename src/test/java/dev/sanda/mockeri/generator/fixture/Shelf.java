@@ -0,0 +1,22 @@
+package dev.sanda.mockeri.generator.fixture;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.util.List;
+
+@Getter
+@Setter
+@Entity
+public class Shelf {
+    @Id
+    @GeneratedValue
+    private Long id;
+    private String label;
+    private byte[] plaque;
+    @ElementCollection
+    private List<String> keywords;
+    @ManyToMany
+    private List<Book> books;
+}
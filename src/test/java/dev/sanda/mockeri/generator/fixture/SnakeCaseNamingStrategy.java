@@ -0,0 +1,29 @@
+package dev.sanda.mockeri.generator.fixture;
+
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl;
+import org.hibernate.engine.jdbc.env.spi.JdbcEnvironment;
+
+import static dev.sanda.mockeri.meta.TableMappingFactory.toSnakeCase;
+
+//tables and columns named as spring boot names them, which is what the table mappings expect
+public class SnakeCaseNamingStrategy extends PhysicalNamingStrategyStandardImpl {
+    @Override
+    public Identifier toPhysicalTableName(Identifier name, JdbcEnvironment context) {
+        return snakeCase(name);
+    }
+
+    @Override
+    public Identifier toPhysicalColumnName(Identifier name, JdbcEnvironment context) {
+        return snakeCase(name);
+    }
+
+    @Override
+    public Identifier toPhysicalSequenceName(Identifier name, JdbcEnvironment context) {
+        return snakeCase(name);
+    }
+
+    private Identifier snakeCase(Identifier name){
+        return name == null ? null : Identifier.toIdentifier(toSnakeCase(name.getText()), name.isQuoted());
+    }
+}
@@ -0,0 +1,123 @@
+package dev.sanda.mockeri.meta;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.*;
+
+public class ClassAccessorFactoryTest {
+
+    public static class Bean {
+        private String name;
+        private int rating;
+        private boolean active;
+        private int setterCalls;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            setterCalls++;
+            this.name = name;
+        }
+
+        public int getRating() {
+            return rating;
+        }
+
+        public void setRating(int rating) {
+            setterCalls++;
+            this.rating = rating;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            setterCalls++;
+            this.active = active;
+        }
+    }
+
+    public static class DerivedBean extends Bean {
+        private long extra;
+    }
+
+    static class Hidden {
+        private final String fixed = "fixed";
+        private Long count;
+        private static String shared;
+
+        private Hidden() {}
+    }
+
+    static abstract class Shape {}
+
+    private final ClassAccessorFactory factory = new ClassAccessorFactory();
+
+    @Test
+    public void publicAccessorsAreCalled(){
+        ClassAccessor accessor = factory.classAccessor(Bean.class);
+        Bean bean = accessor.newInstance();
+        factory.fieldAccessor(field(Bean.class, "name")).set(bean, "first");
+        factory.fieldAccessor(field(Bean.class, "rating")).set(bean, 4);
+        factory.fieldAccessor(field(Bean.class, "active")).set(bean, true);
+        assertEquals(3, bean.setterCalls);
+        assertEquals("first", factory.fieldAccessor(field(Bean.class, "name")).get(bean));
+        assertEquals(4, factory.fieldAccessor(field(Bean.class, "rating")).get(bean));
+        assertEquals(true, factory.fieldAccessor(field(Bean.class, "active")).get(bean));
+        //no accessors for this one, it's read straight from the field
+        assertEquals(3, factory.fieldAccessor(field(Bean.class, "setterCalls")).get(bean));
+    }
+
+    @Test
+    public void inheritedFieldsAreReachedThroughTheSubclass(){
+        DerivedBean bean = factory.classAccessor(DerivedBean.class).newInstance();
+        factory.classAccessor(DerivedBean.class).field(field(Bean.class, "name")).set(bean, "inherited");
+        factory.classAccessor(DerivedBean.class).field(field(DerivedBean.class, "extra")).set(bean, 7L);
+        assertEquals("inherited", bean.getName());
+        assertEquals(7L, factory.classAccessor(DerivedBean.class).field(field(DerivedBean.class, "extra")).get(bean));
+    }
+
+    @Test
+    public void privateMembersAreReachedThroughMethodHandles(){
+        Hidden hidden = factory.classAccessor(Hidden.class).newInstance();
+        factory.fieldAccessor(field(Hidden.class, "count")).set(hidden, 5L);
+        assertEquals(Long.valueOf(5), hidden.count);
+        assertEquals("fixed", factory.fieldAccessor(field(Hidden.class, "fixed")).get(hidden));
+        factory.fieldAccessor(field(Hidden.class, "shared")).set(null, "static");
+        assertEquals("static", Hidden.shared);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void finalFieldsArentAssigned(){
+        Hidden hidden = factory.classAccessor(Hidden.class).newInstance();
+        factory.fieldAccessor(field(Hidden.class, "fixed")).set(hidden, "changed");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void abstractTypesArentInstantiated(){
+        factory.classAccessor(Shape.class).newInstance();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fieldsOfOtherTypesAreRejected(){
+        factory.classAccessor(Hidden.class).field(field(Bean.class, "name"));
+    }
+
+    @Test
+    public void accessorsAreBuiltOncePerClass(){
+        assertSame(factory.classAccessor(Bean.class), factory.classAccessor(Bean.class));
+    }
+
+    private Field field(Class<?> type, String name){
+        try {
+            return type.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package dev.sanda.mockeri.meta;
+
+import dev.sanda.mockeri.annotations.FanOut;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static dev.sanda.mockeri.meta.FanOutDistribution.*;
+import static org.junit.Assert.*;
+
+public class FanOutPolicyTest {
+
+    static class Fixture {
+        @FanOut(3)
+        private Object fixed;
+        @FanOut(0)
+        private Object none;
+        @FanOut(min = 2)
+        private Object minOnly;
+        @FanOut(max = 3)
+        private Object maxOnly;
+        @FanOut(min = 20)
+        private Object minAboveDefault;
+        @FanOut(max = 1)
+        private Object maxOfOne;
+        @FanOut(distribution = POISSON, mean = 2.5, max = 6)
+        private Object poisson;
+        @FanOut(distribution = GEOMETRIC, mean = 1.5)
+        private Object geometric;
+        @FanOut(distribution = POISSON)
+        private Object poissonWithoutMean;
+    }
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void fixedAlwaysSamplesItsSize(){
+        assertTrue(samples(FanOutPolicy.fixed(4), 100).allMatch(size -> size == 4));
+        assertTrue(samples(FanOutPolicy.fixed(0), 100).allMatch(size -> size == 0));
+    }
+
+    @Test
+    public void uniformCoversTheRangeWithAnExclusiveMax(){
+        int[] counts = new int[5];
+        samples(FanOutPolicy.uniform(1, 4), 3000).forEach(size -> counts[size]++);
+        assertEquals(0, counts[0]);
+        assertEquals(0, counts[4]);
+        for (int size = 1; size < 4; size++) assertTrue(counts[size] > 800);
+        assertEquals(2.0, FanOutPolicy.uniform(1, 4).getMean(), 0);
+    }
+
+    @Test
+    public void poissonAndGeometricMatchTheirMeanAndCap(){
+        assertEquals(2.5, samples(FanOutPolicy.poisson(2.5), 20000).average().getAsDouble(), 0.1);
+        assertEquals(1.5, samples(FanOutPolicy.geometric(1.5), 20000).average().getAsDouble(), 0.1);
+        assertEquals(100, samples(FanOutPolicy.poisson(100), 20000).average().getAsDouble(), 1);
+        assertTrue(samples(FanOutPolicy.poisson(2.5, 3), 1000).allMatch(size -> size >= 0 && size < 3));
+        assertTrue(samples(FanOutPolicy.geometric(5, 4), 1000).allMatch(size -> size >= 0 && size < 4));
+        assertTrue(samples(FanOutPolicy.poisson(0), 100).allMatch(size -> size == 0));
+        assertTrue(samples(FanOutPolicy.geometric(0), 100).allMatch(size -> size == 0));
+    }
+
+    @Test
+    public void seededSamplingIsRepeatable(){
+        FanOutPolicy policy = FanOutPolicy.poisson(3);
+        int[] first = new int[50];
+        Random seeded = new Random(7);
+        for (int i = 0; i < first.length; i++) first[i] = policy.sample(seeded);
+        seeded = new Random(7);
+        for (int size : first) assertEquals(size, policy.sample(seeded));
+    }
+
+    @Test
+    public void annotationsMapToPolicies(){
+        assertPolicy("fixed", FIXED, 3, 4);
+        assertPolicy("none", FIXED, 0, 1);
+        assertPolicy("minOnly", UNIFORM, 2, FanOutPolicy.DEFAULT.getMax());
+        assertPolicy("maxOnly", UNIFORM, 2, 3);
+        assertPolicy("minAboveDefault", UNIFORM, 20, 21);
+        assertPolicy("maxOfOne", UNIFORM, 0, 1);
+        assertPolicy("poisson", POISSON, 0, 6);
+        assertPolicy("geometric", GEOMETRIC, 0, Integer.MAX_VALUE);
+        assertEquals(2.5, policy("poisson").getMean(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aMeanIsRequiredForPoisson(){
+        policy("poissonWithoutMean");
+    }
+
+    @Test
+    public void specsRoundTrip(){
+        for (String spec : new String[]{"fixed(3)", "uniform(0,4)", "poisson(2.5)", "poisson(2.5,10)", "geometric(1.5)", "geometric(1.5,10)"})
+            assertEquals(spec, FanOutPolicy.parse(spec).toString());
+        assertEquals("uniform(1,3)", FanOutPolicy.parse(" Uniform( 1 , 3 ) ").toString());
+    }
+
+    @Test
+    public void invalidSpecsAreRejected(){
+        for (String spec : new String[]{"uniform(3)", "uniform(4,4)", "fixed(-1)", "normal(2)", "poisson", "poisson(-1)", "fixed(x)"}) {
+            try {
+                FanOutPolicy.parse(spec);
+                fail(spec);
+            } catch (IllegalArgumentException expected){
+            }
+        }
+    }
+
+    private IntStream samples(FanOutPolicy policy, int count){
+        return IntStream.range(0, count).map(i -> policy.sample(random));
+    }
+
+    private void assertPolicy(String field, FanOutDistribution distribution, int min, int max){
+        FanOutPolicy policy = policy(field);
+        assertEquals(distribution, policy.getDistribution());
+        assertEquals(min, policy.getMin());
+        assertEquals(max, policy.getMax());
+    }
+
+    private FanOutPolicy policy(String field){
+        try {
+            return FanOutPolicy.of(Fixture.class.getDeclaredField(field).getAnnotation(FanOut.class));
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
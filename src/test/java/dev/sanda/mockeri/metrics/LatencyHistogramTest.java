@@ -0,0 +1,77 @@
+package dev.sanda.mockeri.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void emptyHistogramReportsZero(){
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanNanos(), 0);
+        assertEquals(0, histogram.percentileNanos(50));
+    }
+
+    @Test
+    public void countTotalAndMeanAreExact(){
+        histogram.record(100);
+        histogram.record(300);
+        histogram.record(-5);
+        assertEquals(3, histogram.getCount());
+        assertEquals(400, histogram.getTotalNanos());
+        assertEquals(400 / 3.0, histogram.getMeanNanos(), 1e-9);
+    }
+
+    @Test
+    public void percentilesAreTheUpperBoundOfTheirPowerOfTwoBucket(){
+        for (int i = 0; i < 90; i++) histogram.record(1000);
+        for (int i = 0; i < 10; i++) histogram.record(1_000_000);
+        //1000 falls in [512, 1023], 1000000 in [524288, 1048575]
+        assertEquals(1023, histogram.percentileNanos(50));
+        assertEquals(1023, histogram.percentileNanos(90));
+        assertEquals(1048575, histogram.percentileNanos(91));
+        assertEquals(1048575, histogram.percentileNanos(100));
+        assertEquals(1023, histogram.percentileNanos(0));
+    }
+
+    @Test
+    public void bucketBoundariesArePowersOfTwo(){
+        histogram.record(0);
+        assertEquals(1, histogram.percentileNanos(100));
+        histogram.reset();
+        histogram.record(1024);
+        assertEquals(2047, histogram.percentileNanos(100));
+        histogram.reset();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.percentileNanos(100));
+    }
+
+    @Test
+    public void resetClearsEverything(){
+        histogram.record(10);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getTotalNanos());
+        assertEquals(0, histogram.percentileNanos(99));
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++)
+            executor.execute(() -> {
+                for (int i = 0; i < 10000; i++) histogram.record(i);
+            });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(40000, histogram.getCount());
+        assertEquals(4L * (9999L * 10000 / 2), histogram.getTotalNanos());
+    }
+}
@@ -0,0 +1,61 @@
+package dev.sanda.mockeri.metrics;
+
+import dev.sanda.mockeri.meta.MockDataSource;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PopulationMetricsTest {
+
+    static class Author {}
+    static class Book {}
+    static class Review {}
+
+    private final PopulationMetrics metrics = new PopulationMetrics();
+
+    @Test
+    public void fieldTimesLeaveOutTheEntitiesTheyCreate(){
+        ReflectionTestUtils.setField(metrics, "enabled", true);
+        //a field of an author that creates a book, which creates a review of its own
+        long fieldStart = metrics.start(), fieldMark = metrics.entityMark();
+        sleep(20);
+        long bookStart = metrics.start(), bookMark = metrics.entityMark();
+        sleep(20);
+        long reviewStart = metrics.start(), reviewMark = metrics.entityMark();
+        sleep(20);
+        metrics.recordEntity(Review.class, reviewStart, reviewMark);
+        metrics.recordEntity(Book.class, bookStart, bookMark);
+        metrics.recordStrategy(MockDataSource.DEFAULT, fieldStart, fieldMark);
+        //a field that creates nothing is timed as it is
+        long valueStart = metrics.start(), valueMark = metrics.entityMark();
+        sleep(20);
+        metrics.recordStrategy(MockDataSource.KEYWORD, valueStart, valueMark);
+
+        Map<String, Double> means = metrics.getMeanMillis();
+        assertTrue(means.get("entity Book") >= 40);
+        assertTrue(means.get("entity Review") >= 20);
+        //the book's time is subtracted once, the review's is already part of it
+        double fieldMillis = means.get("strategy DEFAULT");
+        assertTrue(fieldMillis + " ms", fieldMillis >= 20 && fieldMillis < 40);
+        assertTrue(means.get("strategy KEYWORD") >= 20);
+    }
+
+    @Test
+    public void disabledMetricsDontReadTheClock(){
+        assertEquals(0, metrics.start());
+        assertEquals(0, metrics.entityMark());
+        metrics.recordEntity(Author.class, 0, 0);
+        assertFalse(metrics.getCounts().containsKey("entity Author"));
+    }
+
+    private static void sleep(long millis){
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}